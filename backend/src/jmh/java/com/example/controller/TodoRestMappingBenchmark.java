@@ -0,0 +1,93 @@
+package com.example.controller;
+
+import com.example.entity.Todo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Protobuf to entity mapping on the REST bridge, and a list response written as JSON through the
+ * entity and Jackson versus straight from the protobuf messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoRestMappingBenchmark {
+
+    private com.example.grpc.todo.Todo grpcTodo;
+
+    @Setup
+    public void setUp() {
+        grpcTodo = grpcTodo(1);
+    }
+
+    @Benchmark
+    public Todo mapToEntityTodo() {
+        return TodoRestMapper.mapToEntityTodo(grpcTodo);
+    }
+
+    @Benchmark
+    public int writeEntityJson(ListResponse response) throws IOException {
+        List<Todo> todos = response.grpcTodos.stream()
+                .map(TodoRestMapper::mapToEntityTodo)
+                .collect(Collectors.toList());
+        response.out.reset();
+        response.objectMapper.writeValue(response.out, todos);
+        return response.out.size();
+    }
+
+    @Benchmark
+    public int writeProtobufJson(ListResponse response) throws IOException {
+        response.out.reset();
+        TodoJsonHttpMessageConverter.writeJson(response.grpcTodos.iterator(), response.out);
+        return response.out.size();
+    }
+
+    @State(Scope.Benchmark)
+    public static class ListResponse {
+
+        @Param({"10", "1000"})
+        private int size;
+
+        private List<com.example.grpc.todo.Todo> grpcTodos;
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        @Setup
+        public void setUp() {
+            grpcTodos = new ArrayList<>(size);
+            for (int i = 1; i <= size; i++) {
+                grpcTodos.add(grpcTodo(i));
+            }
+        }
+    }
+
+    private static com.example.grpc.todo.Todo grpcTodo(int i) {
+        return com.example.grpc.todo.Todo.newBuilder()
+                .setId(i)
+                .setTitle("Todo " + i)
+                .setDescription("Description of todo number " + i)
+                .setCompleted(i % 3 == 0)
+                .setVersion(i % 5)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.grpc;
+
+import com.example.entity.Todo;
+import com.example.grpc.todo.GetAllTodosResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a GetAllTodos response by list size: building it from entities, encoding it to the wire
+ * and decoding it again on the REST bridge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetAllTodosEncodingBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int size;
+
+    private List<Todo> todos;
+    private GetAllTodosResponse response;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        todos = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            todos.add(Todo.builder()
+                    .id((long) i)
+                    .title("Todo " + i)
+                    .description("Description of todo number " + i)
+                    .completed(i % 3 == 0)
+                    .version((long) (i % 5))
+                    .build());
+        }
+        response = build();
+        encoded = response.toByteArray();
+    }
+
+    @Benchmark
+    public GetAllTodosResponse buildResponse() {
+        return build();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return response.toByteArray();
+    }
+
+    // What an uncached GetAllTodos does; a fresh message also pays for computing its serialized size
+    @Benchmark
+    public byte[] buildAndEncode() {
+        return build().toByteArray();
+    }
+
+    @Benchmark
+    public GetAllTodosResponse decode() throws InvalidProtocolBufferException {
+        return GetAllTodosResponse.parseFrom(encoded);
+    }
+
+    private GetAllTodosResponse build() {
+        GetAllTodosResponse.Builder builder = GetAllTodosResponse.newBuilder().setVersion(1L);
+        for (Todo todo : todos) {
+            builder.addTodos(TodoGrpcService.mapToGrpcTodo(todo));
+        }
+        return builder.build();
+    }
+}
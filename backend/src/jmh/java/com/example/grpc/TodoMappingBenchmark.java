@@ -0,0 +1,45 @@
+package com.example.grpc;
+
+import com.example.entity.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to protobuf mapping, as done for every todo the gRPC service returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoMappingBenchmark {
+
+    private Todo todo;
+
+    @Setup
+    public void setUp() {
+        todo = Todo.builder()
+                .id(42L)
+                .title("Buy milk")
+                .description("Two litres of semi-skimmed from the corner shop")
+                .completed(false)
+                .version(3L)
+                .build();
+    }
+
+    @Benchmark
+    public com.example.grpc.todo.Todo mapToGrpcTodo() {
+        return TodoGrpcService.mapToGrpcTodo(todo);
+    }
+}
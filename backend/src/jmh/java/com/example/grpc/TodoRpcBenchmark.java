@@ -0,0 +1,213 @@
+package com.example.grpc;
+
+import com.example.TodoApplication;
+import com.example.grpc.todo.BatchCreateTodosRequest;
+import com.example.grpc.todo.BatchGetTodosRequest;
+import com.example.grpc.todo.BatchGetTodosResponse;
+import com.example.grpc.todo.CreateTodoRequest;
+import com.example.grpc.todo.DeleteTodoRequest;
+import com.example.grpc.todo.DeleteTodoResponse;
+import com.example.grpc.todo.GetAllTodosRequest;
+import com.example.grpc.todo.GetAllTodosResponse;
+import com.example.grpc.todo.GetTodoRequest;
+import com.example.grpc.todo.ImportTodosResponse;
+import com.example.grpc.todo.ListTodosRequest;
+import com.example.grpc.todo.ListTodosResponse;
+import com.example.grpc.todo.SearchTodosRequest;
+import com.example.grpc.todo.SearchTodosResponse;
+import com.example.grpc.todo.StreamTodosRequest;
+import com.example.grpc.todo.Todo;
+import com.example.grpc.todo.TodoServiceGrpc;
+import com.example.grpc.todo.UpdateTodoRequest;
+import com.google.protobuf.FieldMask;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each RPC end to end through the real application context: H2 through JPA, the service, the
+ * interceptors and the gRPC in-process transport. Only the network is left out. Every benchmark
+ * runs in its own fork, so writes from one don't change the table another reads.
+ *
+ * <p>ImportTodos is measured as one import of {@value #IMPORT_ROWS} rows, i.e. a fixed number of
+ * chunks per call. WatchTodos stays open until the client leaves, so it has no unit of work to
+ * time and is not covered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoRpcBenchmark {
+
+    private static final String SERVER_NAME = "todo-benchmark";
+    private static final int IMPORT_ROWS = 4 * TodoGrpcService.DEFAULT_IMPORT_CHUNK_SIZE;
+
+    @Param({"1000"})
+    private int todos;
+
+    private ConfigurableApplicationContext context;
+    private ManagedChannel channel;
+    private TodoServiceGrpc.TodoServiceBlockingStub stub;
+    private TodoServiceGrpc.TodoServiceStub asyncStub;
+    private long firstId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(TodoApplication.class)
+                .web(WebApplicationType.NONE)
+                // As arguments, so they win over application.properties; in-process only, no port to collide with
+                .run("--grpc.server.port=-1",
+                        "--grpc.server.in-process-name=" + SERVER_NAME,
+                        "--logging.level.root=WARN");
+        channel = InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build();
+        stub = TodoServiceGrpc.newBlockingStub(channel);
+        asyncStub = TodoServiceGrpc.newStub(channel);
+
+        // Ids come from one sequence, so a single seeding thread gets a contiguous range
+        for (int from = 0; from < todos; from += TodoGrpcService.MAX_BATCH_SIZE) {
+            BatchCreateTodosRequest.Builder batch = BatchCreateTodosRequest.newBuilder();
+            for (int i = from + 1; i <= Math.min(todos, from + TodoGrpcService.MAX_BATCH_SIZE); i++) {
+                batch.addRequests(CreateTodoRequest.newBuilder()
+                        .setTitle((i % 2 == 0 ? "Buy " : "Call ") + "item " + i)
+                        .setDescription("Description of todo number " + i)
+                        .setCompleted(i % 3 == 0));
+            }
+            long id = stub.batchCreateTodos(batch.build()).getTodos(0).getId();
+            if (from == 0) {
+                firstId = id;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public Todo getTodo() {
+        return stub.getTodo(GetTodoRequest.newBuilder().setId(randomId()).build());
+    }
+
+    @Benchmark
+    public GetAllTodosResponse getAllTodos() {
+        return stub.getAllTodos(GetAllTodosRequest.getDefaultInstance());
+    }
+
+    @Benchmark
+    public GetAllTodosResponse getAllTodosPage() {
+        return stub.getAllTodos(GetAllTodosRequest.newBuilder().setPageSize(50).build());
+    }
+
+    @Benchmark
+    public ListTodosResponse listTodos() {
+        return stub.listTodos(ListTodosRequest.newBuilder()
+                .setTitlePrefix("Buy")
+                .setCompleted(false)
+                .setLimit(50)
+                .build());
+    }
+
+    @Benchmark
+    public SearchTodosResponse searchTodos() {
+        return stub.searchTodos(SearchTodosRequest.newBuilder().setQuery("buy item").setPageSize(20).build());
+    }
+
+    @Benchmark
+    public BatchGetTodosResponse batchGetTodos() {
+        BatchGetTodosRequest.Builder request = BatchGetTodosRequest.newBuilder();
+        for (int i = 0; i < 20; i++) {
+            request.addIds(randomId());
+        }
+        return stub.batchGetTodos(request.build());
+    }
+
+    @Benchmark
+    public Todo createTodo() {
+        return stub.createTodo(CreateTodoRequest.newBuilder()
+                .setTitle("Benchmark todo")
+                .setDescription("Created by TodoRpcBenchmark")
+                .build());
+    }
+
+    @Benchmark
+    public Todo updateTodo() {
+        return stub.updateTodo(UpdateTodoRequest.newBuilder()
+                .setId(randomId())
+                .setCompleted(ThreadLocalRandom.current().nextBoolean())
+                .setUpdateMask(FieldMask.newBuilder().addPaths("completed"))
+                .build());
+    }
+
+    // Deletes what it creates, so the table stays the same size
+    @Benchmark
+    public DeleteTodoResponse createAndDeleteTodo() {
+        Todo created = createTodo();
+        return stub.deleteTodo(DeleteTodoRequest.newBuilder().setId(created.getId()).build());
+    }
+
+    @Benchmark
+    public void streamTodos(Blackhole blackhole) {
+        Iterator<Todo> stream = stub.streamTodos(StreamTodosRequest.newBuilder().setChunkSize(100).build());
+        while (stream.hasNext()) {
+            blackhole.consume(stream.next());
+        }
+    }
+
+    // Only this benchmark's fork sees the imported rows pile up; inserts don't slow down with table size
+    @Benchmark
+    public ImportTodosResponse importTodos() throws Exception {
+        CompletableFuture<ImportTodosResponse> done = new CompletableFuture<>();
+        StreamObserver<CreateTodoRequest> requests = asyncStub.importTodos(new StreamObserver<ImportTodosResponse>() {
+            @Override
+            public void onNext(ImportTodosResponse response) {
+                done.complete(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        for (int i = 0; i < IMPORT_ROWS; i++) {
+            requests.onNext(CreateTodoRequest.newBuilder()
+                    .setTitle("Imported item " + i)
+                    .setDescription("Imported by TodoRpcBenchmark")
+                    .build());
+        }
+        requests.onCompleted();
+        return done.get(1, TimeUnit.MINUTES);
+    }
+
+    private long randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(todos);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.loadtest;
+
+import com.example.grpc.todo.CreateTodoRequest;
+import com.example.grpc.todo.DeleteTodoRequest;
+import com.example.grpc.todo.GetAllTodosRequest;
+import com.example.grpc.todo.GetTodoRequest;
+import com.example.grpc.todo.TodoServiceGrpc;
+import com.example.grpc.todo.UpdateTodoRequest;
+import com.google.protobuf.FieldMask;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+final class GrpcTodoClient implements TodoClient {
+
+    private static final long DEADLINE_SECONDS = 30;
+
+    private final ManagedChannel channel;
+    private final TodoServiceGrpc.TodoServiceBlockingStub stub;
+
+    GrpcTodoClient(String host, int port) {
+        this.channel = NettyChannelBuilder.forAddress(host, port)
+                .usePlaintext()
+                .build();
+        this.stub = TodoServiceGrpc.newBlockingStub(channel);
+    }
+
+    @Override
+    public boolean get(long id) {
+        return found(() -> stub().getTodo(GetTodoRequest.newBuilder().setId(id).build()));
+    }
+
+    @Override
+    public long create() {
+        return stub().createTodo(CreateTodoRequest.newBuilder()
+                .setTitle("Load test todo")
+                .setDescription("Created by the load generator")
+                .build()).getId();
+    }
+
+    @Override
+    public boolean update(long id) {
+        return found(() -> stub().updateTodo(UpdateTodoRequest.newBuilder()
+                .setId(id)
+                .setCompleted(ThreadLocalRandom.current().nextBoolean())
+                .setUpdateMask(FieldMask.newBuilder().addPaths("completed"))
+                .build()));
+    }
+
+    @Override
+    public boolean delete(long id) {
+        return stub().deleteTodo(DeleteTodoRequest.newBuilder().setId(id).build()).getSuccess();
+    }
+
+    @Override
+    public void getAll() {
+        stub().getAllTodos(GetAllTodosRequest.getDefaultInstance());
+    }
+
+    @Override
+    public void close() {
+        channel.shutdownNow();
+    }
+
+    private TodoServiceGrpc.TodoServiceBlockingStub stub() {
+        return stub.withDeadlineAfter(DEADLINE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static boolean found(Runnable call) {
+        try {
+            call.run();
+            return true;
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.NOT_FOUND) {
+                return false;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.loadtest;
+
+import com.example.TodoApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of todo operations against the gRPC or REST front end and reports latency
+ * percentiles and throughput. By default it starts the application in this JVM first, so a run
+ * needs nothing but the build.
+ *
+ * <p>Every call has an intended start time: in open mode the n-th call is due at
+ * {@code start + n / rate}, in closed mode with a rate each worker is due every
+ * {@code concurrency / rate}. Response time is measured from that time rather than from when the
+ * call actually went out, so a stall that delays the calls queued behind it shows up in their
+ * latencies too instead of being omitted (coordinated omission). Service time, measured from the
+ * actual start, is reported alongside. A closed run without a rate has no schedule, so both are
+ * the same.
+ *
+ * <p>Run with {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--mode=open --rate=2000"}.
+ */
+public final class LoadGenerator {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadOptions options;
+    private final TodoClient client;
+    private final int[] weights;
+    private final int totalWeight;
+    private final AtomicLong lowestId = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong highestId = new AtomicLong();
+
+    LoadGenerator(LoadOptions options, TodoClient client) {
+        this.options = options;
+        this.client = client;
+        this.weights = new int[Operation.values().length];
+        options.mix.forEach((operation, weight) -> weights[operation.ordinal()] = weight);
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        this.totalWeight = total;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ConfigurableApplicationContext application = options.embedded ? startApplication(options) : null;
+        TodoClient client = options.protocol == LoadOptions.Protocol.GRPC
+                ? new GrpcTodoClient(options.host, options.grpcPort)
+                : new RestTodoClient(options.host, options.restPort);
+        try {
+            new LoadGenerator(options, client).run();
+        } finally {
+            client.close();
+            if (application != null) {
+                application.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startApplication(LoadOptions options) {
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=" + options.restPort);
+        args.add("--grpc.server.port=" + options.grpcPort);
+        args.add("--logging.level.root=WARN");
+        args.addAll(options.applicationArgs);
+        System.out.println("Starting the application with " + args);
+        return new SpringApplicationBuilder(TodoApplication.class).run(args.toArray(new String[0]));
+    }
+
+    void run() throws InterruptedException {
+        System.out.println("Seeding " + options.seed + " todos");
+        for (int i = 0; i < options.seed; i++) {
+            created(client.create());
+        }
+
+        if (!options.warmup.isZero()) {
+            System.out.println("Warming up for " + seconds(options.warmup));
+            runPhase(options.warmup);
+        }
+        System.out.println("Measuring for " + seconds(options.duration));
+        long start = System.nanoTime();
+        Map<Operation, OperationStats> stats = runPhase(options.duration);
+        report(stats, System.nanoTime() - start);
+    }
+
+    private Map<Operation, OperationStats> runPhase(Duration length) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + length.toNanos();
+        // Interval between intended starts: of all calls in open mode, of one worker's calls in paced closed mode
+        long interval = options.rate > 0 ? TimeUnit.SECONDS.toNanos(1) / options.rate : 0;
+        AtomicLong tickets = new AtomicLong();
+
+        List<Worker> workers = new ArrayList<>(options.concurrency);
+        for (int i = 0; i < options.concurrency; i++) {
+            Worker worker = new Worker(i, start, end, interval, tickets);
+            workers.add(worker);
+            worker.start();
+        }
+        Map<Operation, OperationStats> merged = newStats();
+        for (Worker worker : workers) {
+            worker.join();
+            worker.stats.forEach((operation, stats) -> merged.get(operation).add(stats));
+        }
+        return merged;
+    }
+
+    private final class Worker extends Thread {
+
+        private final long start;
+        private final long end;
+        private final long interval;
+        private final AtomicLong tickets;
+        private final Map<Operation, OperationStats> stats = newStats();
+        private long nextIntended;
+
+        Worker(int index, long start, long end, long interval, AtomicLong tickets) {
+            super("load-" + index);
+            this.start = start;
+            this.end = end;
+            this.interval = interval;
+            this.tickets = tickets;
+            // Paced closed-mode workers are staggered so their calls spread evenly over the interval
+            this.nextIntended = start + index * interval;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                long intended = nextIntendedStart();
+                if (intended >= end) {
+                    return;
+                }
+                sleepUntil(intended);
+
+                Operation operation = pick();
+                OperationStats operationStats = stats.get(operation);
+                long begin = System.nanoTime();
+                try {
+                    if (execute(operation)) {
+                        operationStats.succeeded++;
+                    } else {
+                        operationStats.notFound++;
+                    }
+                } catch (RuntimeException e) {
+                    operationStats.failed++;
+                    if (operationStats.firstError == null) {
+                        operationStats.firstError = e.toString();
+                    }
+                }
+                long done = System.nanoTime();
+                operationStats.record(done - intended, done - begin);
+            }
+        }
+
+        private long nextIntendedStart() {
+            if (options.mode == LoadOptions.Mode.OPEN) {
+                return start + tickets.getAndIncrement() * interval;
+            }
+            if (interval > 0) {
+                long intended = nextIntended;
+                nextIntended += interval * options.concurrency;
+                return intended;
+            }
+            return System.nanoTime();
+        }
+    }
+
+    private boolean execute(Operation operation) {
+        switch (operation) {
+            case GET:
+                return client.get(randomId());
+            case CREATE:
+                created(client.create());
+                return true;
+            case UPDATE:
+                return client.update(randomId());
+            case DELETE:
+                return client.delete(randomId());
+            case GET_ALL:
+                client.getAll();
+                return true;
+            default:
+                throw new IllegalStateException("Unhandled operation " + operation);
+        }
+    }
+
+    private Operation pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : Operation.values()) {
+            ticket -= weights[operation.ordinal()];
+            if (ticket < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Weights don't add up to " + totalWeight);
+    }
+
+    // Ids are handed out in ascending order, so any id in the range is a todo that exists or was deleted
+    private long randomId() {
+        long low = lowestId.get();
+        return low + ThreadLocalRandom.current().nextLong(highestId.get() - low + 1);
+    }
+
+    private void created(long id) {
+        lowestId.accumulateAndGet(id, Math::min);
+        highestId.accumulateAndGet(id, Math::max);
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static Map<Operation, OperationStats> newStats() {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+        return stats;
+    }
+
+    private void report(Map<Operation, OperationStats> stats, long elapsedNanos) {
+        OperationStats all = new OperationStats();
+        stats.values().forEach(all::add);
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.println();
+        System.out.printf("%s, %s loop%s, %d workers, %s measured after %s warm-up%n",
+                options.protocol.name().toLowerCase(), options.mode.name().toLowerCase(),
+                options.rate > 0 ? " at " + options.rate + "/s" : "", options.concurrency,
+                seconds(options.duration), seconds(options.warmup));
+        System.out.printf("Throughput: %.1f calls/s (%d calls, %d not found, %d failed)%n",
+                all.count() / seconds, all.count(), all.notFound, all.failed);
+        if (options.rate > 0 && all.count() / seconds < options.rate * 0.95) {
+            System.out.println("The service did not keep up with the requested rate; calls queued behind it");
+        }
+
+        System.out.println();
+        System.out.println("Response time in ms, from the intended start (corrected for coordinated omission):");
+        printTable(stats, all, seconds, true);
+        System.out.println();
+        System.out.println("Service time in ms, from the actual start:");
+        printTable(stats, all, seconds, false);
+
+        stats.forEach((operation, operationStats) -> {
+            if (operationStats.firstError != null) {
+                System.out.println("First " + operation.key() + " failure: " + operationStats.firstError);
+            }
+        });
+    }
+
+    private static void printTable(Map<Operation, OperationStats> stats, OperationStats all, double seconds,
+                                   boolean responseTime) {
+        System.out.printf("%-8s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "op", "count", "calls/s", "p50", "p90", "p99", "p99.9", "max", "mean");
+        stats.forEach((operation, operationStats) -> {
+            if (operationStats.count() > 0) {
+                printRow(operation.key(), operationStats, seconds, responseTime);
+            }
+        });
+        printRow("all", all, seconds, responseTime);
+    }
+
+    private static void printRow(String name, OperationStats stats, double seconds, boolean responseTime) {
+        Histogram histogram = responseTime ? stats.responseTime : stats.serviceTime;
+        StringBuilder row = new StringBuilder(String.format("%-8s %9d %9.1f", name, stats.count(), stats.count() / seconds));
+        for (double percentile : PERCENTILES) {
+            row.append(String.format(" %9.3f", millis(histogram.getValueAtPercentile(percentile))));
+        }
+        row.append(String.format(" %9.3f %9.3f", millis(histogram.getMaxValue()), histogram.getMean() / 1e6));
+        System.out.println(row);
+    }
+
+    private static String seconds(Duration duration) {
+        return String.format("%.1fs", duration.toMillis() / 1000.0);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the load generator. Options are {@code --name=value}; any option it doesn't know
+ * is handed to the embedded application, e.g. {@code --todo.store.type=memory}.
+ */
+final class LoadOptions {
+
+    static final String USAGE = String.join("\n",
+            "Options (defaults in brackets):",
+            "  --protocol=grpc|rest     which front end to drive [grpc]",
+            "  --mode=closed|open       closed: each worker waits for its reply before the next call;",
+            "                           open: calls start at --rate regardless of replies [closed]",
+            "  --rate=N                 calls per second; required for open, paces workers in closed [0]",
+            "  --concurrency=N          worker threads, i.e. the most calls in flight [16]",
+            "  --warmup=D               run before measuring, results discarded [10s]",
+            "  --duration=D             measured run [30s]",
+            "  --mix=op=w,...           weights of get, create, update, delete, getAll",
+            "                           [get=60,create=10,update=15,delete=5,getAll=10]",
+            "  --seed=N                 todos created before the warm-up [1000]",
+            "  --embedded=true|false    start the application in this JVM [true]",
+            "  --host=H                 host of a running application when not embedded [localhost]",
+            "  --grpc-port=N            [9090]",
+            "  --rest-port=N            [8080]");
+
+    enum Protocol { GRPC, REST }
+
+    enum Mode { CLOSED, OPEN }
+
+    Protocol protocol = Protocol.GRPC;
+    Mode mode = Mode.CLOSED;
+    int rate;
+    int concurrency = 16;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(30);
+    Map<Operation, Integer> mix = parseMix("get=60,create=10,update=15,delete=5,getAll=10");
+    int seed = 1000;
+    boolean embedded = true;
+    String host = "localhost";
+    int grpcPort = 9090;
+    int restPort = 8080;
+    final List<String> applicationArgs = new ArrayList<>();
+
+    /**
+     * @throws IllegalArgumentException for a malformed or inconsistent option
+     */
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got '" + arg + "'");
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "protocol":
+                    options.protocol = Protocol.valueOf(value.toUpperCase());
+                    break;
+                case "mode":
+                    options.mode = Mode.valueOf(value.toUpperCase());
+                    break;
+                case "rate":
+                    options.rate = Integer.parseInt(value);
+                    break;
+                case "concurrency":
+                    options.concurrency = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    options.warmup = DurationStyle.detectAndParse(value);
+                    break;
+                case "duration":
+                    options.duration = DurationStyle.detectAndParse(value);
+                    break;
+                case "mix":
+                    options.mix = parseMix(value);
+                    break;
+                case "seed":
+                    options.seed = Integer.parseInt(value);
+                    break;
+                case "embedded":
+                    options.embedded = Boolean.parseBoolean(value);
+                    break;
+                case "host":
+                    options.host = value;
+                    break;
+                case "grpc-port":
+                    options.grpcPort = Integer.parseInt(value);
+                    break;
+                case "rest-port":
+                    options.restPort = Integer.parseInt(value);
+                    break;
+                default:
+                    options.applicationArgs.add(arg);
+            }
+        }
+
+        if (options.mode == Mode.OPEN && options.rate <= 0) {
+            throw new IllegalArgumentException("--mode=open needs a --rate");
+        }
+        if (options.concurrency < 1) {
+            throw new IllegalArgumentException("--concurrency must be at least 1");
+        }
+        if (options.seed < 1) {
+            throw new IllegalArgumentException("--seed must be at least 1");
+        }
+        return options;
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] weight = entry.split("=", 2);
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Expected op=weight in --mix but got '" + entry + "'");
+            }
+            mix.put(Operation.byKey(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("--mix needs a positive weight");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.loadtest;
+
+/**
+ * The calls a load run mixes, by the name used in {@code --mix}.
+ */
+enum Operation {
+
+    GET("get"),
+    CREATE("create"),
+    UPDATE("update"),
+    DELETE("delete"),
+    GET_ALL("getAll");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    static Operation byKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "' in --mix");
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and outcomes of one operation, kept per worker so recording needs no synchronization
+ * and merged once the phase is over.
+ */
+final class OperationStats {
+
+    // Nanoseconds, three significant digits, resized as larger values arrive
+    final Histogram responseTime = new Histogram(3);
+    final Histogram serviceTime = new Histogram(3);
+    long succeeded;
+    long notFound;
+    long failed;
+    String firstError;
+
+    /**
+     * @param responseNanos from when the call should have started; includes any time it waited
+     *                      behind earlier calls, which is what coordinated omission would hide
+     * @param serviceNanos  from when the call actually started
+     */
+    void record(long responseNanos, long serviceNanos) {
+        responseTime.recordValue(responseNanos);
+        serviceTime.recordValue(serviceNanos);
+    }
+
+    long count() {
+        return succeeded + notFound + failed;
+    }
+
+    void add(OperationStats other) {
+        responseTime.add(other.responseTime);
+        serviceTime.add(other.serviceTime);
+        succeeded += other.succeeded;
+        notFound += other.notFound;
+        failed += other.failed;
+        if (firstError == null) {
+            firstError = other.firstError;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class RestTodoClient implements TodoClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final HttpClient client;
+    private final String baseUri;
+
+    RestTodoClient(String host, int port) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .build();
+        this.baseUri = "http://" + host + ":" + port + "/api/todos";
+    }
+
+    @Override
+    public boolean get(long id) {
+        return found(send(request("/" + id).GET()));
+    }
+
+    @Override
+    public long create() {
+        HttpResponse<String> response = send(request("")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"title\":\"Load test todo\",\"description\":\"Created by the load generator\",\"completed\":false}")));
+        check(response);
+        Matcher id = ID.matcher(response.body());
+        if (!id.find()) {
+            throw new IllegalStateException("No id in create response: " + response.body());
+        }
+        return Long.parseLong(id.group(1));
+    }
+
+    @Override
+    public boolean update(long id) {
+        return found(send(request("/" + id)
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                        "{\"completed\":" + ThreadLocalRandom.current().nextBoolean() + "}"))));
+    }
+
+    @Override
+    public boolean delete(long id) {
+        HttpResponse<String> response = send(request("/" + id).DELETE());
+        check(response);
+        return response.body().contains("true");
+    }
+
+    @Override
+    public void getAll() {
+        check(send(request("").GET()));
+    }
+
+    @Override
+    public void close() {
+        // HttpClient has no close before Java 21; its threads are daemons
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path)).timeout(TIMEOUT);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) {
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    private static boolean found(HttpResponse<String> response) {
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        check(response);
+        return true;
+    }
+
+    private static void check(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + " from " + response.request().uri());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.loadtest;
+
+import java.io.Closeable;
+
+/**
+ * One protocol's way of issuing the mixed operations. Methods return false for a todo that no
+ * longer exists (it was deleted by another worker), which is counted but not an error; anything
+ * else that goes wrong is thrown.
+ */
+interface TodoClient extends Closeable {
+
+    boolean get(long id);
+
+    /**
+     * @return the id of the new todo
+     */
+    long create();
+
+    boolean update(long id);
+
+    boolean delete(long id);
+
+    void getAll();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,41 @@
+package com.example.config;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every call that doesn't already carry a deadline one from configuration, looked up by bare
+ * method name (e.g. {@code GetAllTodos}) with a fallback for the rest. A zero or negative duration
+ * leaves the call without a deadline.
+ */
+class DeadlineClientInterceptor implements ClientInterceptor {
+
+    private final Duration defaultDeadline;
+    private final Map<String, Duration> methodDeadlines;
+
+    DeadlineClientInterceptor(Duration defaultDeadline, Map<String, Duration> methodDeadlines) {
+        this.defaultDeadline = defaultDeadline;
+        this.methodDeadlines = methodDeadlines;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+        Duration deadline = deadlineFor(method);
+        if (callOptions.getDeadline() == null && deadline != null && !deadline.isNegative() && !deadline.isZero()) {
+            callOptions = callOptions.withDeadlineAfter(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return next.newCall(method, callOptions);
+    }
+
+    Duration deadlineFor(MethodDescriptor<?, ?> method) {
+        return methodDeadlines.getOrDefault(method.getBareMethodName(), defaultDeadline);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.config;
+
+import com.example.grpc.todo.TodoServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableConfigurationProperties(GrpcClientProperties.class)
+public class GrpcClientConfig {
+
+    public static final String TRANSPORT_NETTY = "netty";
+    public static final String TRANSPORT_IN_PROCESS = "in-process";
+
+    @Bean(destroyMethod = "close")
+    public PooledManagedChannel todoChannel(GrpcClientProperties properties,
+                                            @Value("${grpc.server.in-process-name:}") String inProcessName) {
+        if (TRANSPORT_IN_PROCESS.equals(properties.getTransport())) {
+            // A single in-process channel has no connection or event loop to saturate
+            return new PooledManagedChannel(Collections.singletonList(inProcessChannel(inProcessName)),
+                    properties.getShutdownTimeout());
+        }
+        if (!TRANSPORT_NETTY.equals(properties.getTransport())) {
+            throw new IllegalStateException("Unknown todo.grpc.client.transport '" + properties.getTransport() + "'");
+        }
+        if (properties.getPoolSize() < 1) {
+            throw new IllegalStateException("todo.grpc.client.pool-size must be at least 1");
+        }
+
+        List<ManagedChannel> channels = new ArrayList<>(properties.getPoolSize());
+        for (int i = 0; i < properties.getPoolSize(); i++) {
+            channels.add(nettyChannel(properties));
+        }
+        return new PooledManagedChannel(channels, properties.getShutdownTimeout());
+    }
+
+    static ManagedChannel nettyChannel(GrpcClientProperties properties) {
+        // Create a gRPC channel to connect to the gRPC server
+        return NettyChannelBuilder.forAddress(properties.getHost(), properties.getPort())
+                .usePlaintext()
+                .keepAliveTime(properties.getKeepAliveTime().toNanos(), TimeUnit.NANOSECONDS)
+                .keepAliveTimeout(properties.getKeepAliveTimeout().toNanos(), TimeUnit.NANOSECONDS)
+                .keepAliveWithoutCalls(properties.isKeepAliveWithoutCalls())
+                .idleTimeout(properties.getIdleTimeout().toNanos(), TimeUnit.NANOSECONDS)
+                .flowControlWindow((int) properties.getFlowControlWindow().toBytes())
+                .maxInboundMessageSize((int) properties.getMaxInboundMessageSize().toBytes())
+                .build();
+    }
+
+    static ManagedChannel inProcessChannel(String inProcessName) {
+        if (!StringUtils.hasText(inProcessName)) {
+            throw new IllegalStateException(
+                    "todo.grpc.client.transport=" + TRANSPORT_IN_PROCESS + " requires grpc.server.in-process-name");
+        }
+        // The in-process transport hands protobuf messages across as-is (the proto marshaller recognises
+        // its own lazy stream and skips encode/decode), and directExecutor avoids a thread hop per callback
+        return InProcessChannelBuilder.forName(inProcessName)
+                .directExecutor()
+                .build();
+    }
+
+    @Bean
+    public TodoServiceGrpc.TodoServiceBlockingStub todoServiceBlockingStub(ManagedChannel todoChannel,
+                                                                           GrpcClientProperties properties) {
+        return TodoServiceGrpc.newBlockingStub(todoChannel).withInterceptors(deadlineInterceptor(properties));
+    }
+
+    @Bean
+    public TodoServiceGrpc.TodoServiceFutureStub todoServiceFutureStub(ManagedChannel todoChannel,
+                                                                       GrpcClientProperties properties) {
+        return TodoServiceGrpc.newFutureStub(todoChannel).withInterceptors(deadlineInterceptor(properties));
+    }
+
+    // The deadline travels with the call, so the server can stop working for a caller that gave up
+    static DeadlineClientInterceptor deadlineInterceptor(GrpcClientProperties properties) {
+        return new DeadlineClientInterceptor(properties.getDeadline(), properties.getDeadlines());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "todo.grpc.client")
+public class GrpcClientProperties {
+
+    // "netty" connects over TCP, "in-process" to the gRPC server running in this JVM
+    private String transport = GrpcClientConfig.TRANSPORT_NETTY;
+
+    private String host = "localhost";
+
+    private int port = 9090;
+
+    // Number of Netty sub-channels (HTTP/2 connections) calls are spread across
+    private int poolSize = 1;
+
+    private Duration keepAliveTime = Duration.ofMinutes(1);
+
+    private Duration keepAliveTimeout = Duration.ofSeconds(20);
+
+    private boolean keepAliveWithoutCalls = false;
+
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    private DataSize flowControlWindow = DataSize.ofMegabytes(1);
+
+    private DataSize maxInboundMessageSize = DataSize.ofMegabytes(4);
+
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    // Deadline for calls whose method has no entry in deadlines; zero sends calls without one
+    private Duration deadline = Duration.ofSeconds(10);
+
+    // Per-method deadlines keyed by bare method name, e.g. GetAllTodos
+    private Map<String, Duration> deadlines = new HashMap<>();
+}
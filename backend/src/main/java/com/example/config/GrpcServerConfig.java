@@ -0,0 +1,126 @@
+package com.example.config;
+
+import com.example.grpc.CallDeadlines;
+import com.example.grpc.ConcurrencyLimitInterceptor;
+import com.example.grpc.DeadlineServerInterceptor;
+import com.example.grpc.GrpcMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.common.util.InterceptorOrder;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the executor the gRPC servers (netty and in-process) run handlers on:
+ * <ul>
+ *     <li>"default": grpc-java's cached pool, one platform thread per concurrently blocked call</li>
+ *     <li>"fixed": a fixed number of platform threads, excess calls wait in the queue</li>
+ *     <li>"work-stealing": a ForkJoinPool, for handlers that mostly don't block</li>
+ *     <li>"virtual": a new virtual thread per task (Java 21+), so calls blocked on JDBC no longer
+ *     hold an OS thread each</li>
+ * </ul>
+ */
+@Configuration
+@EnableConfigurationProperties(GrpcServerProperties.class)
+public class GrpcServerConfig implements DisposableBean {
+
+    public static final String EXECUTOR_DEFAULT = "default";
+    public static final String EXECUTOR_FIXED = "fixed";
+    public static final String EXECUTOR_WORK_STEALING = "work-stealing";
+    public static final String EXECUTOR_VIRTUAL = "virtual";
+
+    private ExecutorService executor;
+
+    @Bean
+    public GrpcServerConfigurer grpcServerExecutorConfigurer(GrpcServerProperties properties) {
+        executor = createExecutor(properties);
+        return serverBuilder -> {
+            if (executor != null) {
+                serverBuilder.executor(executor);
+            }
+        };
+    }
+
+    // Outside the limiter, so shed calls are timed and counted too
+    @GrpcGlobalServerInterceptor
+    @Order(InterceptorOrder.ORDER_TRACING_METRICS)
+    public GrpcMetricsInterceptor grpcMetricsInterceptor(MeterRegistry meterRegistry) {
+        return new GrpcMetricsInterceptor(meterRegistry);
+    }
+
+    @GrpcGlobalServerInterceptor
+    @ConditionalOnProperty(name = "todo.grpc.server.limit.enabled", havingValue = "true", matchIfMissing = true)
+    public ConcurrencyLimitInterceptor concurrencyLimitInterceptor(GrpcServerProperties properties, MeterRegistry meterRegistry) {
+        GrpcServerProperties.Limit limit = properties.getLimit();
+        return new ConcurrencyLimitInterceptor(limit.getInitial(), limit.getMin(), limit.getMax(), meterRegistry);
+    }
+
+    @GrpcGlobalServerInterceptor
+    public DeadlineServerInterceptor deadlineServerInterceptor() {
+        return new DeadlineServerInterceptor();
+    }
+
+    @Bean
+    public CallDeadlines callDeadlines(@Value("${todo.store.type:jpa}") String storeType,
+                                       PlatformTransactionManager transactionManager) {
+        // Only the JPA store issues statements a transaction timeout can cut short
+        return "jpa".equals(storeType) ? new CallDeadlines(transactionManager) : CallDeadlines.checkOnly();
+    }
+
+    @Override
+    public void destroy() {
+        // The gRPC servers are stopped by then, as they are lifecycle beans
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    static ExecutorService createExecutor(GrpcServerProperties properties) {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        switch (properties.getExecutor()) {
+            case EXECUTOR_DEFAULT:
+                return null;
+            case EXECUTOR_FIXED:
+                // Handlers block on the database, so size well beyond the CPU count
+                int threads = properties.getThreads() > 0 ? properties.getThreads() : cpus * 8;
+                AtomicInteger counter = new AtomicInteger();
+                return Executors.newFixedThreadPool(threads, runnable -> {
+                    Thread thread = new Thread(runnable, "grpc-server-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            case EXECUTOR_WORK_STEALING:
+                return new ForkJoinPool(properties.getThreads() > 0 ? properties.getThreads() : cpus,
+                        ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            case EXECUTOR_VIRTUAL:
+                return virtualThreadPerTaskExecutor();
+            default:
+                throw new IllegalStateException("Unknown todo.grpc.server.executor '" + properties.getExecutor() + "'");
+        }
+    }
+
+    // Looked up reflectively so the build doesn't need Java 21 to compile against it
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("todo.grpc.server.executor=virtual needs Java 21 or later, running on "
+                    + Runtime.version(), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "todo.grpc.server")
+public class GrpcServerProperties {
+
+    // "default" keeps grpc-java's unbounded cached pool; see GrpcServerConfig for the others
+    private String executor = GrpcServerConfig.EXECUTOR_DEFAULT;
+
+    // Pool size for "fixed" and parallelism for "work-stealing"; 0 picks a size from the CPU count
+    private int threads = 0;
+
+    private Limit limit = new Limit();
+
+    @Data
+    public static class Limit {
+
+        // Adaptive per-method concurrency limit for unary calls; calls over it fail with RESOURCE_EXHAUSTED
+        private boolean enabled = true;
+
+        private int initial = 20;
+
+        private int min = 4;
+
+        private int max = 1000;
+    }
+}
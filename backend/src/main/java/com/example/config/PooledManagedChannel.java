@@ -0,0 +1,115 @@
+package com.example.config;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads calls round-robin over several sub-channels. Each Netty sub-channel holds its own HTTP/2
+ * connection, and with it its own MAX_CONCURRENT_STREAMS budget and event loop.
+ */
+public class PooledManagedChannel extends ManagedChannel {
+
+    private final ManagedChannel[] channels;
+    private final Duration shutdownTimeout;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public PooledManagedChannel(List<ManagedChannel> channels, Duration shutdownTimeout) {
+        if (channels.isEmpty()) {
+            throw new IllegalArgumentException("At least one channel is required");
+        }
+        this.channels = channels.toArray(new ManagedChannel[0]);
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public int size() {
+        return channels.length;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+        return nextChannel().newCall(method, callOptions);
+    }
+
+    private ManagedChannel nextChannel() {
+        if (channels.length == 1) {
+            return channels[0];
+        }
+        return channels[Math.floorMod(next.getAndIncrement(), channels.length)];
+    }
+
+    @Override
+    public String authority() {
+        return channels[0].authority();
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        for (ManagedChannel channel : channels) {
+            channel.shutdown();
+        }
+        return this;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        for (ManagedChannel channel : channels) {
+            channel.shutdownNow();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (ManagedChannel channel : channels) {
+            if (!channel.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (ManagedChannel channel : channels) {
+            if (!channel.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ManagedChannel channel : channels) {
+            long remaining = deadline - System.nanoTime();
+            if (!channel.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting new calls, lets in-flight ones finish within the shutdown timeout and then
+     * cancels whatever is left.
+     */
+    public void close() throws InterruptedException {
+        shutdown();
+        try {
+            if (!awaitTermination(shutdownTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            shutdownNow();
+            throw e;
+        }
+    }
+}
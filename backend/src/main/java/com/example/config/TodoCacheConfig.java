@@ -0,0 +1,29 @@
+package com.example.config;
+
+import com.example.service.CaffeineTodoCache;
+import com.example.service.TodoCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TodoCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public TodoCache todoCache(@Value("${todo.cache.maximum-size:10000}") long maximumSize, MeterRegistry meterRegistry) {
+        CaffeineTodoCache cache = new CaffeineTodoCache(maximumSize);
+        // Publishes cache.gets{result=hit|miss}, cache.evictions and cache.size under cache=todos
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.nativeCache(), "todos");
+        return cache;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.cache.enabled", havingValue = "false")
+    public TodoCache noTodoCache() {
+        return TodoCache.none();
+    }
+}
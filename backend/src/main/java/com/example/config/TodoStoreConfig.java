@@ -0,0 +1,48 @@
+package com.example.config;
+
+import com.example.repository.TodoRepository;
+import com.example.store.DurableTodoStore;
+import com.example.store.InMemoryTodoStore;
+import com.example.store.JpaTodoStore;
+import com.example.store.TimedTodoStore;
+import com.example.store.TodoStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Picks the store by {@code todo.store.type}. Whichever it is, it is wrapped in a
+ * {@link TimedTodoStore} so store latency shows up next to the gRPC and REST timings.
+ */
+@Configuration
+public class TodoStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.store.type", havingValue = "jpa", matchIfMissing = true)
+    public TodoStore jpaTodoStore(TodoRepository todoRepository, MeterRegistry meterRegistry) {
+        return new TimedTodoStore(new JpaTodoStore(todoRepository), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.store.type", havingValue = "memory")
+    public TodoStore inMemoryTodoStore(MeterRegistry meterRegistry) {
+        return new TimedTodoStore(new InMemoryTodoStore(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.store.type", havingValue = "durable")
+    public TodoStore durableTodoStore(@Value("${todo.store.durable.directory:data}") String directory,
+                                      @Value("${todo.store.durable.fsync-interval:0}") Duration fsyncInterval,
+                                      @Value("${todo.store.durable.snapshot-log-size:64MB}") DataSize snapshotLogSize,
+                                      MeterRegistry meterRegistry) throws IOException {
+        return new TimedTodoStore(DurableTodoStore.open(Paths.get(directory), fsyncInterval, snapshotLogSize.toBytes()),
+                meterRegistry);
+    }
+}
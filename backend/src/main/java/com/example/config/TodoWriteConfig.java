@@ -0,0 +1,34 @@
+package com.example.config;
+
+import com.example.service.CoalescingTodoWriteExecutor;
+import com.example.service.TodoWriteExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+
+@Configuration
+public class TodoWriteConfig {
+
+    // Coalescing needs writes that roll back with their transaction, which only the jpa store has
+    private static final String COALESCE = "${todo.write.coalesce.enabled:false} and '${todo.store.type:jpa}' == 'jpa'";
+
+    @Bean
+    @ConditionalOnExpression(COALESCE)
+    public TodoWriteExecutor coalescingTodoWriteExecutor(PlatformTransactionManager transactionManager,
+                                                         EntityManager entityManager,
+                                                         @Value("${todo.write.coalesce.max-batch-size:64}") int maxBatchSize,
+                                                         @Value("${todo.write.coalesce.window:1ms}") Duration window) {
+        return new CoalescingTodoWriteExecutor(transactionManager, entityManager, maxBatchSize, window);
+    }
+
+    @Bean
+    @ConditionalOnExpression("!(" + COALESCE + ")")
+    public TodoWriteExecutor directTodoWriteExecutor() {
+        return TodoWriteExecutor.direct();
+    }
+}
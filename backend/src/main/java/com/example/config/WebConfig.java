@@ -1,5 +1,10 @@
 package com.example.config;
 
+import com.example.controller.ActiveRequestsFilter;
+import com.example.controller.TodoJsonHttpMessageConverter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -11,8 +16,23 @@ public class WebConfig implements WebMvcConfigurer {
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
                 .allowedOrigins("http://localhost:3000")
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("X-Next-Page-Token", "X-Total-Count", "ETag")
                 .allowCredentials(true);
     }
-}
\ No newline at end of file
+
+    @Bean
+    public FilterRegistrationBean<ActiveRequestsFilter> activeRequestsFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<ActiveRequestsFilter> registration =
+                new FilterRegistrationBean<>(new ActiveRequestsFilter(meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    // Boot puts converter beans ahead of its defaults, so todo lists never reach Jackson's bean serializer
+    @Bean
+    public TodoJsonHttpMessageConverter todoJsonHttpMessageConverter() {
+        return new TodoJsonHttpMessageConverter();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.controller;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes the REST requests in progress per HTTP method as {@code http.server.requests.active}.
+ * Latency and status counts come from Spring Boot's own {@code http.server.requests} timer; this
+ * adds what it lacks. An async request stays counted until its response completes, not just until
+ * the Tomcat thread is handed back.
+ */
+public class ActiveRequestsFilter extends OncePerRequestFilter {
+
+    static final String ACTIVE = "http.server.requests.active";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, AtomicInteger> active = new ConcurrentHashMap<>();
+
+    public ActiveRequestsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicInteger counter = active.computeIfAbsent(request.getMethod(), this::register);
+        AtomicBoolean done = new AtomicBoolean();
+        counter.incrementAndGet();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        finish();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        finish();
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        finish();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+
+                    private void finish() {
+                        if (done.compareAndSet(false, true)) {
+                            counter.decrementAndGet();
+                        }
+                    }
+                });
+            } else if (done.compareAndSet(false, true)) {
+                counter.decrementAndGet();
+            }
+        }
+    }
+
+    private AtomicInteger register(String method) {
+        AtomicInteger counter = new AtomicInteger();
+        Gauge.builder(ACTIVE, counter, AtomicInteger::get)
+                .tag("method", method)
+                .register(meterRegistry);
+        return counter;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.controller;
+
+import com.example.entity.Todo;
+import com.example.grpc.todo.*;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.example.controller.TodoRestMapper.*;
+
+/**
+ * Same API as {@link TodoRestController}, but built on the future stub: the servlet thread is
+ * released as soon as the gRPC call is started and the response is written when it completes, so
+ * the number of in-flight REST calls is no longer bounded by the Tomcat worker pool.
+ */
+@RestController
+@RequestMapping("/api/todos")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true",
+        exposedHeaders = {NEXT_PAGE_TOKEN_HEADER, TOTAL_COUNT_HEADER, HttpHeaders.ETAG})
+@ConditionalOnProperty(name = "todo.rest.async", havingValue = "true")
+public class AsyncTodoRestController {
+
+    private final TodoServiceGrpc.TodoServiceFutureStub todoServiceStub;
+    // Server streaming has no future stub; the unpaged list reads StreamTodos through this one
+    private final TodoServiceGrpc.TodoServiceBlockingStub todoServiceBlockingStub;
+
+    public AsyncTodoRestController(TodoServiceGrpc.TodoServiceFutureStub todoServiceStub,
+                                   TodoServiceGrpc.TodoServiceBlockingStub todoServiceBlockingStub) {
+        this.todoServiceStub = todoServiceStub;
+        this.todoServiceBlockingStub = todoServiceBlockingStub;
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<Iterable<com.example.grpc.todo.Todo>>> getAllTodos(@RequestParam(required = false) Integer pageSize,
+                                                                                               @RequestParam(required = false) String pageToken,
+                                                                                               @RequestParam(required = false) Boolean completed,
+                                                                                               @RequestParam(required = false) String titlePrefix,
+                                                                                               @RequestParam(required = false) String sort,
+                                                                                               @RequestParam(required = false) Integer limit,
+                                                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (isListQuery(completed, titlePrefix, sort, limit)) {
+            return listTodos(pageSize, pageToken, completed, titlePrefix, sort, limit);
+        }
+        if (pageSize == null && pageToken == null) {
+            // Only the stream is started here; it is read as the response is written, on the async dispatch
+            Long ifNotVersion = parseETag(ifNoneMatch);
+            return toCompletableFuture(todoServiceStub.getAllTodos(mapToVersionRequest()))
+                    .thenApply(response -> mapToStreamResponse(response, ifNotVersion,
+                            () -> TodoStream.open(todoServiceBlockingStub)));
+        }
+
+        return toCompletableFuture(todoServiceStub.getAllTodos(mapToGetAllTodosRequest(pageSize, pageToken, null)))
+                .thenApply(TodoRestMapper::mapToPageResponse)
+                .exceptionally(e -> {
+                    if (Status.fromThrowable(e).getCode() == Status.Code.INVALID_ARGUMENT) {
+                        return ResponseEntity.badRequest().build();
+                    }
+                    throw new CompletionException(e);
+                });
+    }
+
+    private CompletableFuture<ResponseEntity<Iterable<com.example.grpc.todo.Todo>>> listTodos(Integer pageSize, String pageToken,
+                                                                                              Boolean completed, String titlePrefix,
+                                                                                              String sort, Integer limit) {
+        // Filtered views are bounded by limit rather than paged
+        if (pageSize != null || pageToken != null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        ListTodosRequest request;
+        try {
+            request = mapToListTodosRequest(completed, titlePrefix, sort, limit);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        return toCompletableFuture(todoServiceStub.listTodos(request))
+                .thenApply(TodoRestMapper::mapToListResponse)
+                .exceptionally(e -> {
+                    if (Status.fromThrowable(e).getCode() == Status.Code.INVALID_ARGUMENT) {
+                        return ResponseEntity.badRequest().build();
+                    }
+                    throw new CompletionException(e);
+                });
+    }
+
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<List<com.example.grpc.todo.Todo>>> searchTodos(@RequestParam("q") String query,
+                                                                                           @RequestParam(required = false) Integer pageSize,
+                                                                                           @RequestParam(required = false) String pageToken) {
+        return toCompletableFuture(todoServiceStub.searchTodos(mapToSearchRequest(query, pageSize, pageToken)))
+                .thenApply(TodoRestMapper::mapToSearchResponse)
+                .exceptionally(e -> {
+                    if (Status.fromThrowable(e).getCode() == Status.Code.INVALID_ARGUMENT) {
+                        return ResponseEntity.badRequest().build();
+                    }
+                    throw new CompletionException(e);
+                });
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Todo>> getTodoById(@PathVariable Long id,
+                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long ifNotVersion = parseETag(ifNoneMatch);
+        GetTodoRequest.Builder request = GetTodoRequest.newBuilder()
+                .setId(id);
+        if (ifNotVersion != null) {
+            request.setIfNotVersion(ifNotVersion);
+        }
+
+        return toCompletableFuture(todoServiceStub.getTodo(request.build()))
+                .thenApply(grpcTodo -> mapToTodoResponse(grpcTodo, ifNotVersion))
+                .exceptionally(e -> ResponseEntity.status(mapToHttpStatus(e, HttpStatus.NOT_FOUND)).build());
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Todo>> createTodo(@RequestBody Todo todo) {
+        return toCompletableFuture(todoServiceStub.createTodo(mapToCreateRequest(todo)))
+                .thenApply(grpcTodo -> ResponseEntity.ok(mapToEntityTodo(grpcTodo)));
+    }
+
+    @PutMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Todo>> updateTodo(@PathVariable Long id, @RequestBody Todo todo,
+                                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // Ensure the path ID matches the todo ID
+        if (!id.equals(todo.getId())) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        return toCompletableFuture(todoServiceStub.updateTodo(mapToUpdateRequest(todo, parseETag(ifMatch))))
+                .thenApply(grpcTodo -> mapToTodoResponse(grpcTodo, null))
+                .exceptionally(e -> ResponseEntity.status(mapToHttpStatus(e, HttpStatus.NOT_FOUND)).build());
+    }
+
+    @PatchMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Todo>> patchTodo(@PathVariable Long id, @RequestBody Map<String, Object> fields,
+                                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UpdateTodoRequest request;
+        try {
+            request = mapToPatchRequest(id, fields, parseETag(ifMatch));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        return toCompletableFuture(todoServiceStub.updateTodo(request))
+                .thenApply(grpcTodo -> mapToTodoResponse(grpcTodo, null))
+                .exceptionally(e -> ResponseEntity.status(mapToHttpStatus(e, HttpStatus.NOT_FOUND)).build());
+    }
+
+    @DeleteMapping
+    public CompletableFuture<ResponseEntity<Map<String, Integer>>> deleteTodos(@RequestParam(required = false) List<Long> ids,
+                                                                               @RequestParam(required = false) Boolean completed) {
+        return toCompletableFuture(todoServiceStub.deleteTodos(mapToDeleteTodosRequest(ids, completed)))
+                .thenApply(response -> ResponseEntity.ok(Map.of("deletedCount", response.getDeletedCount())))
+                .exceptionally(e -> {
+                    if (Status.fromThrowable(e).getCode() == Status.Code.INVALID_ARGUMENT) {
+                        return ResponseEntity.badRequest().build();
+                    }
+                    throw new CompletionException(e);
+                });
+    }
+
+    @DeleteMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Map<String, Boolean>>> deleteTodo(@PathVariable Long id) {
+        DeleteTodoRequest request = DeleteTodoRequest.newBuilder()
+                .setId(id)
+                .build();
+
+        return toCompletableFuture(todoServiceStub.deleteTodo(request))
+                .thenApply(response -> ResponseEntity.ok(Map.of("success", response.getSuccess())));
+    }
+
+    private static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                // Propagates to the gRPC call, e.g. when the servlet container times the request out
+                future.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+}
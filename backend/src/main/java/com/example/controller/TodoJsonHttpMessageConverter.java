@@ -0,0 +1,106 @@
+package com.example.controller;
+
+import com.example.grpc.todo.Todo;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+
+/**
+ * Writes lists of protobuf todos straight to the response as the JSON array the entity would
+ * produce, one todo at a time: no entity copies and no reflective bean serialization. A body that is
+ * also {@link Closeable}, like {@link TodoStream}, is closed once written or abandoned.
+ */
+public class TodoJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Iterable<Todo>> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public TodoJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        ResolvableType elementType = ResolvableType.forType(type != null ? type : clazz).as(Iterable.class).getGeneric();
+        return Todo.class.equals(elementType.resolve()) && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Iterable<Todo> todos, Type type, HttpOutputMessage outputMessage) throws IOException {
+        try {
+            Iterator<Todo> iterator = todos.iterator();
+            awaitFirst(iterator);
+            writeJson(iterator, StreamUtils.nonClosing(outputMessage.getBody()));
+        } finally {
+            if (todos instanceof Closeable) {
+                ((Closeable) todos).close();
+            }
+        }
+    }
+
+    /**
+     * Blocks until the first todo or the end of the list, so a call that fails outright throws before
+     * the body is opened and the response can still carry an error status.
+     */
+    private static void awaitFirst(Iterator<Todo> todos) {
+        todos.hasNext();
+    }
+
+    /**
+     * If the todos fail part way the array is left unterminated and the exception propagates, so the
+     * partial list can't be parsed as a complete one.
+     */
+    static void writeJson(Iterator<Todo> todos, OutputStream out) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        // Otherwise closing the generator would write the missing brackets
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        try {
+            generator.writeStartArray();
+            while (todos.hasNext()) {
+                Todo todo = todos.next();
+                generator.writeStartObject();
+                generator.writeNumberField("id", todo.getId());
+                generator.writeStringField("title", todo.getTitle());
+                generator.writeStringField("description", todo.getDescription());
+                generator.writeBooleanField("completed", todo.getCompleted());
+                generator.writeNumberField("version", todo.getVersion());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        } finally {
+            generator.close();
+        }
+    }
+
+    @Override
+    protected Iterable<Todo> readInternal(Class<? extends Iterable<Todo>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Todo lists are write-only", inputMessage);
+    }
+
+    @Override
+    public Iterable<Todo> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Todo lists are write-only", inputMessage);
+    }
+}
@@ -2,93 +2,162 @@ package com.example.controller;
 
 import com.example.entity.Todo;
 import com.example.grpc.todo.*;
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+
+import static com.example.controller.TodoRestMapper.*;
 
 @RestController
 @RequestMapping("/api/todos")
-@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true",
+        exposedHeaders = {NEXT_PAGE_TOKEN_HEADER, TOTAL_COUNT_HEADER, HttpHeaders.ETAG})
+@ConditionalOnProperty(name = "todo.rest.async", havingValue = "false", matchIfMissing = true)
 public class TodoRestController {
 
     private final TodoServiceGrpc.TodoServiceBlockingStub todoServiceStub;
 
-    public TodoRestController() {
-        // Create a gRPC channel to connect to the gRPC server
-        ManagedChannel channel = ManagedChannelBuilder.forAddress("localhost", 9090)
-                .usePlaintext()
-                .build();
-        
-        // Create a blocking stub for making synchronous calls to the gRPC service
-        todoServiceStub = TodoServiceGrpc.newBlockingStub(channel);
+    public TodoRestController(TodoServiceGrpc.TodoServiceBlockingStub todoServiceStub) {
+        this.todoServiceStub = todoServiceStub;
     }
 
     @GetMapping
-    public ResponseEntity<List<Todo>> getAllTodos() {
-        GetAllTodosRequest request = GetAllTodosRequest.newBuilder().build();
-        GetAllTodosResponse response = todoServiceStub.getAllTodos(request);
-        
-        List<Todo> todos = response.getTodosList().stream()
-                .map(this::mapToEntityTodo)
-                .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(todos);
+    public ResponseEntity<Iterable<com.example.grpc.todo.Todo>> getAllTodos(@RequestParam(required = false) Integer pageSize,
+                                                                            @RequestParam(required = false) String pageToken,
+                                                                            @RequestParam(required = false) Boolean completed,
+                                                                            @RequestParam(required = false) String titlePrefix,
+                                                                            @RequestParam(required = false) String sort,
+                                                                            @RequestParam(required = false) Integer limit,
+                                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (isListQuery(completed, titlePrefix, sort, limit)) {
+            return listTodos(pageSize, pageToken, completed, titlePrefix, sort, limit);
+        }
+        if (pageSize == null && pageToken == null) {
+            // The whole list is streamed rather than fetched in one message, so its size doesn't matter
+            return mapToStreamResponse(todoServiceStub.getAllTodos(mapToVersionRequest()), parseETag(ifNoneMatch),
+                    () -> TodoStream.open(todoServiceStub));
+        }
+
+        try {
+            return mapToPageResponse(todoServiceStub.getAllTodos(mapToGetAllTodosRequest(pageSize, pageToken, null)));
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.INVALID_ARGUMENT) {
+                return ResponseEntity.badRequest().build();
+            }
+            throw e;
+        }
+    }
+
+    private ResponseEntity<Iterable<com.example.grpc.todo.Todo>> listTodos(Integer pageSize, String pageToken, Boolean completed,
+                                                                           String titlePrefix, String sort, Integer limit) {
+        // Filtered views are bounded by limit rather than paged
+        if (pageSize != null || pageToken != null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            ListTodosResponse response = todoServiceStub.listTodos(mapToListTodosRequest(completed, titlePrefix, sort, limit));
+            return mapToListResponse(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.INVALID_ARGUMENT) {
+                return ResponseEntity.badRequest().build();
+            }
+            throw e;
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<com.example.grpc.todo.Todo>> searchTodos(@RequestParam("q") String query,
+                                                                        @RequestParam(required = false) Integer pageSize,
+                                                                        @RequestParam(required = false) String pageToken) {
+        try {
+            return mapToSearchResponse(todoServiceStub.searchTodos(mapToSearchRequest(query, pageSize, pageToken)));
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.INVALID_ARGUMENT) {
+                return ResponseEntity.badRequest().build();
+            }
+            throw e;
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Todo> getTodoById(@PathVariable Long id) {
-        GetTodoRequest request = GetTodoRequest.newBuilder()
-                .setId(id)
-                .build();
-        
+    public ResponseEntity<Todo> getTodoById(@PathVariable Long id,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long ifNotVersion = parseETag(ifNoneMatch);
+        GetTodoRequest.Builder request = GetTodoRequest.newBuilder()
+                .setId(id);
+        if (ifNotVersion != null) {
+            request.setIfNotVersion(ifNotVersion);
+        }
+
         try {
-            com.example.grpc.todo.Todo grpcTodo = todoServiceStub.getTodo(request);
-            Todo todo = mapToEntityTodo(grpcTodo);
-            return ResponseEntity.ok(todo);
+            com.example.grpc.todo.Todo grpcTodo = todoServiceStub.getTodo(request.build());
+            return mapToTodoResponse(grpcTodo, ifNotVersion);
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            return ResponseEntity.status(mapToHttpStatus(e, HttpStatus.NOT_FOUND)).build();
         }
     }
 
     @PostMapping
     public ResponseEntity<Todo> createTodo(@RequestBody Todo todo) {
-        CreateTodoRequest request = CreateTodoRequest.newBuilder()
-                .setTitle(todo.getTitle())
-                .setDescription(todo.getDescription())
-                .setCompleted(todo.isCompleted())
-                .build();
-        
-        com.example.grpc.todo.Todo grpcTodo = todoServiceStub.createTodo(request);
+        com.example.grpc.todo.Todo grpcTodo = todoServiceStub.createTodo(mapToCreateRequest(todo));
         Todo createdTodo = mapToEntityTodo(grpcTodo);
-        
+
         return ResponseEntity.ok(createdTodo);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Todo> updateTodo(@PathVariable Long id, @RequestBody Todo todo) {
+    public ResponseEntity<Todo> updateTodo(@PathVariable Long id, @RequestBody Todo todo,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         // Ensure the path ID matches the todo ID
         if (!id.equals(todo.getId())) {
             return ResponseEntity.badRequest().build();
         }
-        
-        UpdateTodoRequest request = UpdateTodoRequest.newBuilder()
-                .setId(todo.getId())
-                .setTitle(todo.getTitle())
-                .setDescription(todo.getDescription())
-                .setCompleted(todo.isCompleted())
-                .build();
-        
+
         try {
-            com.example.grpc.todo.Todo grpcTodo = todoServiceStub.updateTodo(request);
-            Todo updatedTodo = mapToEntityTodo(grpcTodo);
-            return ResponseEntity.ok(updatedTodo);
+            com.example.grpc.todo.Todo grpcTodo = todoServiceStub.updateTodo(mapToUpdateRequest(todo, parseETag(ifMatch)));
+            return mapToTodoResponse(grpcTodo, null);
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            return ResponseEntity.status(mapToHttpStatus(e, HttpStatus.NOT_FOUND)).build();
+        }
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<Todo> patchTodo(@PathVariable Long id, @RequestBody Map<String, Object> fields,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UpdateTodoRequest request;
+        try {
+            request = mapToPatchRequest(id, fields, parseETag(ifMatch));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return mapToTodoResponse(todoServiceStub.updateTodo(request), null);
+        } catch (Exception e) {
+            return ResponseEntity.status(mapToHttpStatus(e, HttpStatus.NOT_FOUND)).build();
+        }
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Map<String, Integer>> deleteTodos(@RequestParam(required = false) List<Long> ids,
+                                                            @RequestParam(required = false) Boolean completed) {
+        try {
+            DeleteTodosResponse response = todoServiceStub.deleteTodos(mapToDeleteTodosRequest(ids, completed));
+            return ResponseEntity.ok(Map.of("deletedCount", response.getDeletedCount()));
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.INVALID_ARGUMENT) {
+                return ResponseEntity.badRequest().build();
+            }
+            throw e;
         }
     }
 
@@ -97,18 +166,9 @@ public class TodoRestController {
         DeleteTodoRequest request = DeleteTodoRequest.newBuilder()
                 .setId(id)
                 .build();
-        
+
         DeleteTodoResponse response = todoServiceStub.deleteTodo(request);
-        
+
         return ResponseEntity.ok(Map.of("success", response.getSuccess()));
     }
-    
-    private Todo mapToEntityTodo(com.example.grpc.todo.Todo grpcTodo) {
-        return Todo.builder()
-                .id(grpcTodo.getId())
-                .title(grpcTodo.getTitle())
-                .description(grpcTodo.getDescription())
-                .completed(grpcTodo.getCompleted())
-                .build();
-    }
 }
@@ -0,0 +1,32 @@
+package com.example.controller;
+
+import io.grpc.StatusRuntimeException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CompletionException;
+
+import static com.example.controller.TodoRestMapper.mapToHttpStatus;
+
+/**
+ * Turns gRPC failures that a handler lets through into the matching HTTP status, e.g. 503 when the
+ * server sheds load, instead of a blanket 500.
+ */
+@RestControllerAdvice(assignableTypes = {TodoRestController.class, AsyncTodoRestController.class})
+public class TodoRestExceptionHandler {
+
+    // The async controller's futures wrap the StatusRuntimeException; mapToHttpStatus looks through causes
+    @ExceptionHandler({StatusRuntimeException.class, CompletionException.class})
+    public ResponseEntity<Void> handleGrpcFailure(Exception e, HttpServletResponse response) throws Exception {
+        // A streamed list can fail part way. Still buffered, the partial body is dropped for the error;
+        // once sent, the container has to abort the connection rather than end the body cleanly
+        if (response.isCommitted()) {
+            throw e;
+        }
+        response.resetBuffer();
+        return ResponseEntity.status(mapToHttpStatus(e, HttpStatus.INTERNAL_SERVER_ERROR)).build();
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.controller;
+
+import com.example.entity.Todo;
+import com.example.grpc.todo.CreateTodoRequest;
+import com.example.grpc.todo.DeleteTodosRequest;
+import com.example.grpc.todo.GetAllTodosRequest;
+import com.example.grpc.todo.GetAllTodosResponse;
+import com.example.grpc.todo.ListTodosRequest;
+import com.example.grpc.todo.ListTodosResponse;
+import com.example.grpc.todo.SearchTodosRequest;
+import com.example.grpc.todo.SearchTodosResponse;
+import com.example.grpc.todo.UpdateTodoRequest;
+import com.google.protobuf.FieldMask;
+import io.grpc.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Translation between the REST representation and the gRPC messages, shared by the blocking and
+ * async controllers.
+ */
+final class TodoRestMapper {
+
+    static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final String TRUNCATED_HEADER = "X-Truncated";
+
+    private TodoRestMapper() {
+    }
+
+    static GetAllTodosRequest mapToGetAllTodosRequest(Integer pageSize, String pageToken, Long ifNotVersion) {
+        GetAllTodosRequest.Builder request = GetAllTodosRequest.newBuilder();
+        if (pageSize != null) {
+            request.setPageSize(pageSize);
+        }
+        if (pageToken != null) {
+            request.setPageToken(pageToken);
+        }
+        if (ifNotVersion != null) {
+            request.setIfNotVersion(ifNotVersion);
+        }
+        return request.build();
+    }
+
+    static boolean isListQuery(Boolean completed, String titlePrefix, String sort, Integer limit) {
+        return completed != null || titlePrefix != null || sort != null || limit != null;
+    }
+
+    /**
+     * @param sort "id" or "title", prefixed with "-" for descending order; null sorts by id
+     * @throws IllegalArgumentException if sort names anything else
+     */
+    static ListTodosRequest mapToListTodosRequest(Boolean completed, String titlePrefix, String sort, Integer limit) {
+        ListTodosRequest.Builder request = ListTodosRequest.newBuilder();
+        if (completed != null) {
+            request.setCompleted(completed);
+        }
+        if (titlePrefix != null) {
+            request.setTitlePrefix(titlePrefix);
+        }
+        if (sort != null) {
+            boolean descending = sort.startsWith("-");
+            String field = descending ? sort.substring(1) : sort;
+            switch (field) {
+                case "id":
+                    request.setSortBy(ListTodosRequest.SortField.ID);
+                    break;
+                case "title":
+                    request.setSortBy(ListTodosRequest.SortField.TITLE);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Cannot sort by '" + field + "'");
+            }
+            request.setDescending(descending);
+        }
+        if (limit != null) {
+            request.setLimit(limit);
+        }
+        return request.build();
+    }
+
+    static GetAllTodosRequest mapToVersionRequest() {
+        return GetAllTodosRequest.newBuilder()
+                .setVersionOnly(true)
+                .build();
+    }
+
+    /**
+     * Answers an unpaged list request. The version is read before the stream starts, so the ETag can
+     * only be older than the todos written, which costs a client a refetch but never a stale 304. A
+     * stream that fails part way aborts the response, so a cut-short list is never cached under it.
+     */
+    static ResponseEntity<Iterable<com.example.grpc.todo.Todo>> mapToStreamResponse(
+            GetAllTodosResponse versionResponse, Long ifNotVersion, Supplier<TodoStream> todos) {
+        long version = versionResponse.getVersion();
+        if (ifNotVersion != null && version == ifNotVersion) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(version)).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag(version))
+                .body(todos.get());
+    }
+
+    static ResponseEntity<Iterable<com.example.grpc.todo.Todo>> mapToPageResponse(GetAllTodosResponse response) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (!response.getNextPageToken().isEmpty()) {
+            ok.header(NEXT_PAGE_TOKEN_HEADER, response.getNextPageToken());
+        }
+        return ok.body(response.getTodosList());
+    }
+
+    static SearchTodosRequest mapToSearchRequest(String query, Integer pageSize, String pageToken) {
+        SearchTodosRequest.Builder request = SearchTodosRequest.newBuilder()
+                .setQuery(query);
+        if (pageSize != null) {
+            request.setPageSize(pageSize);
+        }
+        if (pageToken != null) {
+            request.setPageToken(pageToken);
+        }
+        return request.build();
+    }
+
+    static ResponseEntity<Iterable<com.example.grpc.todo.Todo>> mapToListResponse(ListTodosResponse response) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (response.getTruncated()) {
+            ok.header(TRUNCATED_HEADER, "true");
+        }
+        return ok.body(response.getTodosList());
+    }
+
+    static ResponseEntity<List<com.example.grpc.todo.Todo>> mapToSearchResponse(SearchTodosResponse response) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(response.getTotalSize()));
+        if (!response.getNextPageToken().isEmpty()) {
+            ok.header(NEXT_PAGE_TOKEN_HEADER, response.getNextPageToken());
+        }
+        return ok.body(response.getTodosList());
+    }
+
+    static ResponseEntity<Todo> mapToTodoResponse(com.example.grpc.todo.Todo grpcTodo, Long ifNotVersion) {
+        if (ifNotVersion != null && grpcTodo.getVersion() == ifNotVersion) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(grpcTodo.getVersion())).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag(grpcTodo.getVersion()))
+                .body(mapToEntityTodo(grpcTodo));
+    }
+
+    static CreateTodoRequest mapToCreateRequest(Todo todo) {
+        return CreateTodoRequest.newBuilder()
+                .setTitle(todo.getTitle())
+                .setDescription(todo.getDescription())
+                .setCompleted(todo.isCompleted())
+                .build();
+    }
+
+    static UpdateTodoRequest mapToUpdateRequest(Todo todo, Long ifVersion) {
+        UpdateTodoRequest.Builder request = UpdateTodoRequest.newBuilder()
+                .setId(todo.getId())
+                .setTitle(todo.getTitle())
+                .setDescription(todo.getDescription())
+                .setCompleted(todo.isCompleted());
+        if (ifVersion != null) {
+            request.setIfVersion(ifVersion);
+        }
+        return request.build();
+    }
+
+    /**
+     * Builds a masked update from a PATCH body: each key becomes a mask path. Unknown keys are passed
+     * through and rejected by the server.
+     *
+     * @throws IllegalArgumentException if the body names no field or a value has the wrong JSON type
+     */
+    static UpdateTodoRequest mapToPatchRequest(Long id, Map<String, Object> fields, Long ifVersion) {
+        // An empty mask means a full replace to the server, which would blank the todo
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("A PATCH body must name at least one field");
+        }
+        UpdateTodoRequest.Builder request = UpdateTodoRequest.newBuilder()
+                .setId(id);
+        FieldMask.Builder mask = FieldMask.newBuilder();
+        fields.forEach((field, value) -> {
+            switch (field) {
+                case "title":
+                    request.setTitle(requireType(field, value, String.class));
+                    break;
+                case "description":
+                    request.setDescription(requireType(field, value, String.class));
+                    break;
+                case "completed":
+                    request.setCompleted(requireType(field, value, Boolean.class));
+                    break;
+                default:
+                    break;
+            }
+            mask.addPaths(field);
+        });
+        if (ifVersion != null) {
+            request.setIfVersion(ifVersion);
+        }
+        return request.setUpdateMask(mask).build();
+    }
+
+    private static <T> T requireType(String field, Object value, Class<T> type) {
+        if (!type.isInstance(value)) {
+            throw new IllegalArgumentException("'" + field + "' must be a " + type.getSimpleName().toLowerCase());
+        }
+        return type.cast(value);
+    }
+
+    static DeleteTodosRequest mapToDeleteTodosRequest(List<Long> ids, Boolean completed) {
+        DeleteTodosRequest.Builder request = DeleteTodosRequest.newBuilder();
+        if (ids != null) {
+            request.addAllIds(ids);
+        }
+        if (completed != null) {
+            request.setCompleted(completed);
+        }
+        return request.build();
+    }
+
+    static Todo mapToEntityTodo(com.example.grpc.todo.Todo grpcTodo) {
+        return Todo.builder()
+                .id(grpcTodo.getId())
+                .title(grpcTodo.getTitle())
+                .description(grpcTodo.getDescription())
+                .completed(grpcTodo.getCompleted())
+                .version(grpcTodo.getVersion())
+                .build();
+    }
+
+    static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Reads the version out of an If-Match / If-None-Match value. Returns null for anything other
+     * than a single tag we issued (lists, "*", foreign tags), which then simply isn't matched.
+     */
+    static Long parseETag(String header) {
+        if (header == null) {
+            return null;
+        }
+        String tag = header.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static HttpStatus mapToHttpStatus(Throwable error, HttpStatus fallback) {
+        switch (Status.fromThrowable(error).getCode()) {
+            case INVALID_ARGUMENT:
+                return HttpStatus.BAD_REQUEST;
+            case NOT_FOUND:
+                return HttpStatus.NOT_FOUND;
+            case FAILED_PRECONDITION:
+                return HttpStatus.PRECONDITION_FAILED;
+            case ABORTED:
+                return HttpStatus.CONFLICT;
+            case RESOURCE_EXHAUSTED:
+                return HttpStatus.SERVICE_UNAVAILABLE;
+            case DEADLINE_EXCEEDED:
+                return HttpStatus.GATEWAY_TIMEOUT;
+            default:
+                return fallback;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.controller;
+
+import com.example.grpc.todo.StreamTodosRequest;
+import com.example.grpc.todo.Todo;
+import com.example.grpc.todo.TodoServiceGrpc;
+import io.grpc.Context;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * A StreamTodos call read while the response body is written, so the whole list is never held in
+ * memory; gRPC flow control keeps the server at most a chunk ahead. Like a directory stream it can
+ * be iterated only once. Closing it cancels the call, which stops the server reading further chunks
+ * for a client that went away.
+ */
+final class TodoStream implements Iterable<Todo>, Closeable {
+
+    private final Context.CancellableContext context;
+    private final Iterator<Todo> todos;
+    private boolean iterated;
+
+    private TodoStream(Context.CancellableContext context, Iterator<Todo> todos) {
+        this.context = context;
+        this.todos = todos;
+    }
+
+    static TodoStream open(TodoServiceGrpc.TodoServiceBlockingStub todoServiceStub) {
+        // The call is bound to the context it starts in; a blocking iterator has no cancel of its own
+        Context.CancellableContext context = Context.current().withCancellation();
+        Context previous = context.attach();
+        try {
+            return new TodoStream(context, todoServiceStub.streamTodos(StreamTodosRequest.getDefaultInstance()));
+        } finally {
+            context.detach(previous);
+        }
+    }
+
+    @Override
+    public Iterator<Todo> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("TodoStream can only be iterated once");
+        }
+        iterated = true;
+        return todos;
+    }
+
+    @Override
+    public void close() {
+        context.cancel(null);
+    }
+}
@@ -9,16 +9,28 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
+// (completed, title) serves the completed filter on its own, with a title prefix and sorted by title;
+// (title) serves prefix lookups and title ordering across both states
+@Table(indexes = {
+        @Index(name = "idx_todo_completed_title", columnList = "completed, title"),
+        @Index(name = "idx_todo_title", columnList = "title")
+})
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Todo {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // IDENTITY would force an immediate insert per row; a pooled sequence lets Hibernate batch them
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todo_seq")
+    @SequenceGenerator(name = "todo_seq", sequenceName = "todo_seq", allocationSize = 50)
     private Long id;
     
     private String title;
@@ -26,4 +38,7 @@ public class Todo {
     private String description;
     
     private boolean completed;
+
+    @Version
+    private Long version;
 }
@@ -0,0 +1,94 @@
+package com.example.grpc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit for one method that follows observed latency, using a gradient in the style of
+ * Netflix's Gradient2.
+ *
+ * <p>It keeps a long-term average of call latency. When a call's latency exceeds that
+ * baseline (beyond {@value #TOLERANCE}x), the ratio of the two pulls the limit down, by at most
+ * half. While latency stays near the baseline the limit grows by about its square root, which
+ * leaves headroom for queueing. The limit only moves while the method is at least half
+ * saturated, since light load says nothing about capacity.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final int LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile double limit;
+    // Guarded by this
+    private double longRtt;
+    private long samples;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Takes a slot if the method is below its limit; every successful call must be paired with
+     * {@link #release}.
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos how long the call took, or a negative value if it says nothing about the
+     *                 server's latency (e.g. the client cancelled)
+     */
+    void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (rttNanos >= 0) {
+            update(Math.max(1, rttNanos), inFlightBefore);
+        }
+    }
+
+    private synchronized void update(long rtt, int inFlightBefore) {
+        samples++;
+        longRtt = samples == 1 ? rtt : longRtt + (rtt - longRtt) / Math.min(samples, LONG_WINDOW);
+        if (longRtt / rtt > 2) {
+            // Latency has dropped well below the baseline; let the baseline follow it down faster
+            longRtt *= 0.95;
+        }
+
+        double current = limit;
+        if (inFlightBefore < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.grpc;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounds store work by the current call's deadline. Work is skipped once the caller has cancelled
+ * or run out of time, and with a transaction manager it runs in a transaction whose timeout is the
+ * time left, which Hibernate applies as the query timeout of every statement it issues.
+ *
+ * <p>Outside a call (e.g. on the write coalescer's thread) there is no deadline and the work runs
+ * as is. Transaction timeouts have whole-second granularity, so a statement may overrun the
+ * deadline by up to a second.
+ */
+public class CallDeadlines {
+
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * @param transactionManager null when the store doesn't go through the datasource, so there is
+     *                           no query to time out
+     */
+    public CallDeadlines(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public static CallDeadlines checkOnly() {
+        return new CallDeadlines(null);
+    }
+
+    public <T> T read(Supplier<T> work) {
+        return run(work, true);
+    }
+
+    public <T> T write(Supplier<T> work) {
+        return run(work, false);
+    }
+
+    private <T> T run(Supplier<T> work, boolean readOnly) {
+        Context context = Context.current();
+        check(context);
+        Deadline deadline = context.getDeadline();
+        if (deadline == null || transactionManager == null) {
+            return work.get();
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        transaction.setTimeout((int) Math.max(1, (deadline.timeRemaining(TimeUnit.MILLISECONDS) + 999) / 1000));
+        try {
+            return transaction.execute(status -> work.get());
+        } catch (RuntimeException e) {
+            // A statement cut short by the timeout surfaces as whatever the driver throws; report why it happened
+            Status abandoned = abandoned(context);
+            if (abandoned != null) {
+                throw abandoned.withCause(e).asRuntimeException();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @throws StatusRuntimeException DEADLINE_EXCEEDED or CANCELLED if the caller is no longer waiting
+     */
+    static void check(Context context) {
+        Status abandoned = abandoned(context);
+        if (abandoned != null) {
+            throw abandoned.asRuntimeException();
+        }
+    }
+
+    static Status abandoned(Context context) {
+        Deadline deadline = context.getDeadline();
+        if (deadline != null && deadline.isExpired()) {
+            return Status.DEADLINE_EXCEEDED
+                    .withDescription("Deadline exceeded before the call completed");
+        }
+        if (context.isCancelled()) {
+            return Status.CANCELLED
+                    .withDescription("Call cancelled by the client");
+        }
+        return null;
+    }
+}
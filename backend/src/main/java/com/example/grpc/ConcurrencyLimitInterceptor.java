@@ -0,0 +1,113 @@
+package com.example.grpc;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds load per method before it reaches a handler: each unary method gets an
+ * {@link AdaptiveConcurrencyLimit}, and a call arriving while the method is at its limit is closed
+ * right away with RESOURCE_EXHAUSTED instead of queueing behind a slow database.
+ *
+ * <p>Streaming methods are not limited, since a watch or import holds its call open for as long
+ * as the client wants. Per method it publishes {@code grpc.server.concurrency.limit},
+ * {@code grpc.server.concurrency.in-flight} and {@code grpc.server.concurrency.rejected}.
+ */
+public class ConcurrencyLimitInterceptor implements ServerInterceptor {
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitInterceptor(int initialLimit, int minLimit, int maxLimit, MeterRegistry meterRegistry) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+        if (method.getType() != MethodDescriptor.MethodType.UNARY) {
+            return next.startCall(call, headers);
+        }
+
+        AdaptiveConcurrencyLimit limit = limits.computeIfAbsent(method.getFullMethodName(), this::newLimit);
+        if (!limit.tryAcquire()) {
+            call.close(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Concurrency limit of " + limit.getLimit() + " reached for " + method.getFullMethodName()),
+                    new Metadata());
+            return new ServerCall.Listener<ReqT>() {
+            };
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        ServerCall<ReqT, RespT> tracked = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                try {
+                    super.close(status, trailers);
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        limit.release(System.nanoTime() - start);
+                    }
+                }
+            }
+        };
+        try {
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(next.startCall(tracked, headers)) {
+                @Override
+                public void onCancel() {
+                    try {
+                        super.onCancel();
+                    } finally {
+                        // A call the client gave up on says nothing about our latency
+                        if (released.compareAndSet(false, true)) {
+                            limit.release(-1);
+                        }
+                    }
+                }
+            };
+        } catch (RuntimeException e) {
+            if (released.compareAndSet(false, true)) {
+                limit.release(-1);
+            }
+            throw e;
+        }
+    }
+
+    AdaptiveConcurrencyLimit limitFor(String fullMethodName) {
+        return limits.get(fullMethodName);
+    }
+
+    private AdaptiveConcurrencyLimit newLimit(String fullMethodName) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit);
+        Gauge.builder("grpc.server.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .tag("method", fullMethodName)
+                .register(meterRegistry);
+        Gauge.builder("grpc.server.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .tag("method", fullMethodName)
+                .register(meterRegistry);
+        FunctionCounter.builder("grpc.server.concurrency.rejected", limit, AdaptiveConcurrencyLimit::getRejected)
+                .tag("method", fullMethodName)
+                .register(meterRegistry);
+        return limit;
+    }
+}
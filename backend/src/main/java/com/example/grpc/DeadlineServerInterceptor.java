@@ -0,0 +1,50 @@
+package com.example.grpc;
+
+import io.grpc.Context;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * Keeps unary handlers from starting work nobody is waiting for: a call whose client has cancelled
+ * or whose deadline has passed by the time it reaches a handler thread (e.g. after queueing behind
+ * slow calls) is closed without running the handler.
+ *
+ * <p>It also closes the call with the status of a {@link StatusRuntimeException} that a handler
+ * lets escape, such as the one {@link CallDeadlines} throws mid-call, where grpc-java would
+ * otherwise report UNKNOWN.
+ */
+public class DeadlineServerInterceptor implements ServerInterceptor {
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        ServerCall.Listener<ReqT> listener = next.startCall(call, headers);
+        if (call.getMethodDescriptor().getType() != MethodDescriptor.MethodType.UNARY) {
+            return listener;
+        }
+
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onHalfClose() {
+                // Unary handlers run here, once the request has arrived
+                Status abandoned = CallDeadlines.abandoned(Context.current());
+                if (abandoned != null) {
+                    call.close(abandoned, new Metadata());
+                    return;
+                }
+                try {
+                    super.onHalfClose();
+                } catch (StatusRuntimeException e) {
+                    Metadata trailers = e.getTrailers();
+                    call.close(e.getStatus(), trailers != null ? trailers : new Metadata());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.grpc;
+
+import com.example.grpc.todo.GetAllTodosRequest;
+import com.example.grpc.todo.GetAllTodosResponse;
+import com.example.grpc.todo.TodoServiceGrpc;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+/**
+ * Holds the most recent unpaged GetAllTodos response together with its encoded bytes, keyed by
+ * {@link com.example.service.TodoService#getMutationVersion()}.
+ *
+ * <p>While the version is unchanged a read costs neither a query nor any per-todo mapping, and the
+ * response marshaller installed by {@link #bind} writes the cached bytes straight to the transport
+ * instead of encoding the message again.
+ */
+class GetAllTodosResponseCache {
+
+    private volatile Entry entry;
+
+    GetAllTodosResponse get(long version, Supplier<GetAllTodosResponse> loader) {
+        Entry current = entry;
+        if (current != null && current.version == version) {
+            return current.response;
+        }
+        // The caller read the version before loading, so the data is at least as new as the version it is cached under
+        GetAllTodosResponse response = loader.get();
+        entry = new Entry(version, response, response.toByteArray());
+        return response;
+    }
+
+    /**
+     * Returns a copy of the service definition whose GetAllTodos method streams cached responses
+     * from their pre-encoded bytes.
+     */
+    ServerServiceDefinition bind(ServerServiceDefinition definition) {
+        MethodDescriptor<GetAllTodosRequest, GetAllTodosResponse> original = TodoServiceGrpc.getGetAllTodosMethod();
+        MethodDescriptor<GetAllTodosRequest, GetAllTodosResponse> preEncoded = original.toBuilder()
+                .setResponseMarshaller(new PreEncodedMarshaller(original.getResponseMarshaller()))
+                .build();
+
+        ServiceDescriptor descriptor = definition.getServiceDescriptor();
+        ServiceDescriptor.Builder patchedDescriptor = ServiceDescriptor.newBuilder(descriptor.getName())
+                .setSchemaDescriptor(descriptor.getSchemaDescriptor());
+        for (MethodDescriptor<?, ?> method : descriptor.getMethods()) {
+            patchedDescriptor.addMethod(method.getFullMethodName().equals(original.getFullMethodName()) ? preEncoded : method);
+        }
+
+        ServerServiceDefinition.Builder patched = ServerServiceDefinition.builder(patchedDescriptor.build());
+        for (ServerMethodDefinition<?, ?> method : definition.getMethods()) {
+            if (method.getMethodDescriptor().getFullMethodName().equals(original.getFullMethodName())) {
+                @SuppressWarnings("unchecked")
+                ServerCallHandler<GetAllTodosRequest, GetAllTodosResponse> handler =
+                        (ServerCallHandler<GetAllTodosRequest, GetAllTodosResponse>) method.getServerCallHandler();
+                patched.addMethod(preEncoded, handler);
+            } else {
+                patched.addMethod(method);
+            }
+        }
+        return patched.build();
+    }
+
+    private static final class Entry {
+
+        private final long version;
+        private final GetAllTodosResponse response;
+        private final byte[] encoded;
+
+        Entry(long version, GetAllTodosResponse response, byte[] encoded) {
+            this.version = version;
+            this.response = response;
+            this.encoded = encoded;
+        }
+    }
+
+    private final class PreEncodedMarshaller implements MethodDescriptor.Marshaller<GetAllTodosResponse> {
+
+        private final MethodDescriptor.Marshaller<GetAllTodosResponse> delegate;
+
+        PreEncodedMarshaller(MethodDescriptor.Marshaller<GetAllTodosResponse> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public InputStream stream(GetAllTodosResponse value) {
+            Entry current = entry;
+            if (current != null && current.response == value) {
+                return new PreEncodedStream(current.encoded);
+            }
+            return delegate.stream(value);
+        }
+
+        @Override
+        public GetAllTodosResponse parse(InputStream stream) {
+            return delegate.parse(stream);
+        }
+    }
+
+    // KnownLength lets the framer size the frame up front, Drainable lets it copy the array in one write
+    private static final class PreEncodedStream extends ByteArrayInputStream implements KnownLength, Drainable {
+
+        PreEncodedStream(byte[] encoded) {
+            super(encoded);
+        }
+
+        @Override
+        public int drainTo(OutputStream target) throws IOException {
+            int length = count - pos;
+            target.write(buf, pos, length);
+            pos = count;
+            return length;
+        }
+    }
+}
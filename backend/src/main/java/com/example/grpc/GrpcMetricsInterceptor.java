@@ -0,0 +1,108 @@
+package com.example.grpc;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Times every call from arrival to close as {@code grpc.server.calls}, tagged by method and status
+ * code, so the timer counts double as per-status call counters. Calls in progress are published per
+ * method as {@code grpc.server.calls.active}.
+ *
+ * <p>A call the client cancels is recorded as CANCELLED. The timer for a method and status is looked
+ * up once and then kept, so recording a call does not touch the registry.
+ */
+public class GrpcMetricsInterceptor implements ServerInterceptor {
+
+    static final String CALLS = "grpc.server.calls";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    public GrpcMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        MethodMetrics metrics = methods.computeIfAbsent(call.getMethodDescriptor().getFullMethodName(), MethodMetrics::new);
+        long start = System.nanoTime();
+        AtomicBoolean recorded = new AtomicBoolean();
+        metrics.active.incrementAndGet();
+
+        ServerCall<ReqT, RespT> timed = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                try {
+                    super.close(status, trailers);
+                } finally {
+                    if (recorded.compareAndSet(false, true)) {
+                        metrics.record(status.getCode(), System.nanoTime() - start);
+                    }
+                }
+            }
+        };
+        try {
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(next.startCall(timed, headers)) {
+                @Override
+                public void onCancel() {
+                    try {
+                        super.onCancel();
+                    } finally {
+                        if (recorded.compareAndSet(false, true)) {
+                            metrics.record(Status.Code.CANCELLED, System.nanoTime() - start);
+                        }
+                    }
+                }
+            };
+        } catch (RuntimeException e) {
+            if (recorded.compareAndSet(false, true)) {
+                metrics.record(Status.Code.UNKNOWN, System.nanoTime() - start);
+            }
+            throw e;
+        }
+    }
+
+    private final class MethodMetrics {
+
+        private final String method;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(Status.Code.values().length);
+
+        MethodMetrics(String method) {
+            this.method = method;
+            Gauge.builder(CALLS + ".active", active, AtomicInteger::get)
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+
+        void record(Status.Code code, long nanos) {
+            active.decrementAndGet();
+            Timer timer = timers.get(code.ordinal());
+            if (timer == null) {
+                // Registering is idempotent, so a race here only costs a second lookup
+                timer = Timer.builder(CALLS)
+                        .tag("method", method)
+                        .tag("status", code.name())
+                        .register(meterRegistry);
+                timers.set(code.ordinal(), timer);
+            }
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.grpc;
+
+import io.grpc.Status;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Page tokens hold one non-negative position: the last id of the previous page for id-ordered
+ * pages, or the number of hits already returned for search. They are kept opaque to clients so the
+ * encoding can change without breaking them.
+ */
+final class PageTokens {
+
+    private PageTokens() {
+    }
+
+    static String encode(long position) {
+        byte[] bytes = ByteBuffer.allocate(Long.BYTES).putLong(position).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    static long decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return 0L;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            if (bytes.length != Long.BYTES) {
+                throw new IllegalArgumentException("Unexpected token length " + bytes.length);
+            }
+            long position = ByteBuffer.wrap(bytes).getLong();
+            if (position < 0) {
+                throw new IllegalArgumentException("Negative position " + position);
+            }
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw Status.INVALID_ARGUMENT
+                    .withDescription("Invalid page token")
+                    .withCause(e)
+                    .asRuntimeException();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.grpc;
+
+import com.example.grpc.todo.TodoEvent;
+import com.example.grpc.todo.WatchTodosRequest;
+import com.example.service.TodoChangeEvent;
+import com.example.service.TodoChangeListener;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fans committed todo changes out to WatchTodos subscribers.
+ *
+ * <p>Each change is encoded once into a fixed-size ring; subscribers only keep a cursor into it and
+ * drain on a shared executor when signalled. Writers never wait for subscribers: a subscriber that
+ * falls a full ring behind (slow network, client not reading) is sent a RESYNC event and skipped
+ * forward to the head.
+ */
+@Component
+public class TodoChangeFeed implements TodoChangeListener, DisposableBean {
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final AtomicReferenceArray<TodoEvent> ring;
+    private final int mask;
+    // Sequences start at 1 so that a resume_after of 0 means "from now"
+    private final AtomicLong nextSequence = new AtomicLong(1);
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    @Autowired
+    public TodoChangeFeed(@Value("${todo.watch.buffer-size:" + DEFAULT_CAPACITY + "}") int capacity,
+                          @Value("${todo.watch.threads:2}") int threads) {
+        this(capacity, createExecutor(threads));
+    }
+
+    public TodoChangeFeed(int capacity, Executor executor) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.executor = executor;
+        this.ownedExecutor = executor instanceof ExecutorService ? (ExecutorService) executor : null;
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "todo-watch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void onTodoChanged(TodoChangeEvent change) {
+        TodoEvent.Builder event = TodoEvent.newBuilder()
+                .setType(TodoEvent.Type.valueOf(change.getType().name()))
+                .setId(change.getId());
+        if (change.getTodo() != null) {
+            event.setTodo(TodoGrpcService.mapToGrpcTodo(change.getTodo()));
+        }
+
+        long sequence = nextSequence.getAndIncrement();
+        ring.set(index(sequence), event.setSequence(sequence).build());
+
+        for (Subscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    public void subscribe(WatchTodosRequest request, StreamObserver<TodoEvent> responseObserver) {
+        long head = nextSequence.get();
+        long resumeAfter = request.getResumeAfter();
+        long start = resumeAfter > 0 && resumeAfter < head ? resumeAfter + 1 : head;
+
+        Subscription subscription;
+        if (responseObserver instanceof ServerCallStreamObserver) {
+            ServerCallStreamObserver<TodoEvent> serverObserver = (ServerCallStreamObserver<TodoEvent>) responseObserver;
+            subscription = new Subscription(start, serverObserver, serverObserver);
+            serverObserver.setOnCancelHandler(subscription::cancel);
+            serverObserver.setOnReadyHandler(subscription::signal);
+        } else {
+            subscription = new Subscription(start, responseObserver, null);
+        }
+
+        subscriptions.add(subscription);
+        // Catch up on anything published between reading the head and registering
+        subscription.signal();
+    }
+
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void destroy() {
+        subscriptions.forEach(Subscription::complete);
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    private final class Subscription implements Runnable {
+
+        private final StreamObserver<TodoEvent> observer;
+        private final ServerCallStreamObserver<TodoEvent> flowControl;
+        // Work-in-progress counter: only the thread that moves it off zero drains, so onNext is never concurrent
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private long cursor;
+        private volatile boolean done;
+
+        Subscription(long cursor,
+                     StreamObserver<TodoEvent> observer,
+                     ServerCallStreamObserver<TodoEvent> flowControl) {
+            this.cursor = cursor;
+            this.observer = observer;
+            this.flowControl = flowControl;
+        }
+
+        void signal() {
+            if (!done && wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }
+
+        void cancel() {
+            done = true;
+            subscriptions.remove(this);
+        }
+
+        void complete() {
+            cancel();
+            try {
+                observer.onCompleted();
+            } catch (RuntimeException ignored) {
+                // The call is already closed
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            try {
+                while (!done && (flowControl == null || flowControl.isReady())) {
+                    TodoEvent event = ring.get(index(cursor));
+                    if (event == null || event.getSequence() < cursor) {
+                        // Not published yet; the publisher will signal again
+                        return;
+                    }
+                    if (event.getSequence() > cursor) {
+                        long head = nextSequence.get();
+                        observer.onNext(TodoEvent.newBuilder()
+                                .setType(TodoEvent.Type.RESYNC)
+                                .setSequence(head - 1)
+                                .build());
+                        cursor = head;
+                        continue;
+                    }
+                    observer.onNext(event);
+                    cursor++;
+                }
+            } catch (RuntimeException e) {
+                // The call was closed underneath us
+                cancel();
+            }
+        }
+    }
+}
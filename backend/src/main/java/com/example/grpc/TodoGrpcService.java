@@ -2,49 +2,255 @@ package com.example.grpc;
 
 import com.example.entity.Todo;
 import com.example.grpc.todo.*;
+import com.example.service.TodoSearchIndex;
 import com.example.service.TodoService;
+import com.example.service.TodoWriteExecutor;
+import io.grpc.BindableService;
+import io.grpc.ServerServiceDefinition;
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @GrpcService
-public class TodoGrpcService extends TodoServiceGrpc.TodoServiceImplBase {
+public class TodoGrpcService implements TodoServiceGrpc.AsyncService, BindableService {
+
+    static final int DEFAULT_STREAM_CHUNK_SIZE = 100;
+    static final int MAX_STREAM_CHUNK_SIZE = 1000;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_BATCH_SIZE = 1000;
+    static final int DEFAULT_IMPORT_CHUNK_SIZE = 500;
+    static final int MAX_IMPORT_ERRORS = 10;
+    static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
 
     private final TodoService todoService;
+    private final TodoChangeFeed changeFeed;
+    private final TodoSearchIndex searchIndex;
+    private final TodoWriteExecutor writeExecutor;
+    private final CallDeadlines deadlines;
+    private final int importChunkSize;
+    private final GetAllTodosResponseCache allTodosCache = new GetAllTodosResponseCache();
 
-    @Autowired
     public TodoGrpcService(TodoService todoService) {
+        this(todoService, DEFAULT_IMPORT_CHUNK_SIZE);
+    }
+
+    TodoGrpcService(TodoService todoService, int importChunkSize) {
+        this(todoService, new TodoChangeFeed(TodoChangeFeed.DEFAULT_CAPACITY, Runnable::run), new TodoSearchIndex(),
+                TodoWriteExecutor.direct(), CallDeadlines.checkOnly(), importChunkSize);
+    }
+
+    @Autowired
+    public TodoGrpcService(TodoService todoService,
+                           TodoChangeFeed changeFeed,
+                           TodoSearchIndex searchIndex,
+                           TodoWriteExecutor writeExecutor,
+                           CallDeadlines deadlines,
+                           @Value("${todo.import.chunk-size:" + DEFAULT_IMPORT_CHUNK_SIZE + "}") int importChunkSize) {
+        if (importChunkSize < 1) {
+            throw new IllegalStateException("todo.import.chunk-size must be at least 1");
+        }
         this.todoService = todoService;
+        this.changeFeed = changeFeed;
+        this.searchIndex = searchIndex;
+        this.writeExecutor = writeExecutor;
+        this.deadlines = deadlines;
+        this.importChunkSize = importChunkSize;
+    }
+
+    // Bound by hand rather than through TodoServiceImplBase, whose bindService() is final
+    @Override
+    public ServerServiceDefinition bindService() {
+        return allTodosCache.bind(TodoServiceGrpc.bindService(this));
     }
 
     @Override
     public void getAllTodos(GetAllTodosRequest request, StreamObserver<GetAllTodosResponse> responseObserver) {
-        List<Todo> todos = todoService.getAllTodos();
-        
-        List<com.example.grpc.todo.Todo> grpcTodos = todos.stream()
-                .map(this::mapToGrpcTodo)
-                .collect(Collectors.toList());
-        
-        GetAllTodosResponse response = GetAllTodosResponse.newBuilder()
-                .addAllTodos(grpcTodos)
-                .build();
+        if (request.getPageSize() < 0) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("page_size must not be negative")
+                    .asRuntimeException());
+            return;
+        }
+        // Otherwise the token would be dropped and the whole table returned in one message
+        if (request.getPageSize() == 0 && !request.getPageToken().isEmpty()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("page_token requires page_size")
+                    .asRuntimeException());
+            return;
+        }
+        if (request.getPageSize() > 0) {
+            if (request.getVersionOnly()) {
+                responseObserver.onError(Status.INVALID_ARGUMENT
+                        .withDescription("version_only cannot be combined with page_size")
+                        .asRuntimeException());
+                return;
+            }
+            getTodoPage(request, responseObserver);
+            return;
+        }
+
+        // Read the version first: anything committed after this point invalidates what we load
+        long version = todoService.getMutationVersion();
+        if (request.getVersionOnly() || request.hasIfNotVersion() && request.getIfNotVersion() == version) {
+            responseObserver.onNext(GetAllTodosResponse.newBuilder().setVersion(version).build());
+            responseObserver.onCompleted();
+            return;
+        }
+
+        GetAllTodosResponse response = allTodosCache.get(version, () -> {
+            List<Todo> todos = deadlines.read(todoService::getAllTodos);
+
+            List<com.example.grpc.todo.Todo> grpcTodos = todos.stream()
+                    .map(TodoGrpcService::mapToGrpcTodo)
+                    .collect(Collectors.toList());
+
+            return GetAllTodosResponse.newBuilder()
+                    .addAllTodos(grpcTodos)
+                    .setVersion(version)
+                    .build();
+        });
         
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
 
+    private void getTodoPage(GetAllTodosRequest request, StreamObserver<GetAllTodosResponse> responseObserver) {
+        long afterId;
+        try {
+            afterId = PageTokens.decode(request.getPageToken());
+        } catch (StatusRuntimeException e) {
+            responseObserver.onError(e);
+            return;
+        }
+
+        int pageSize = Math.min(request.getPageSize(), MAX_PAGE_SIZE);
+        // One extra row tells us whether another page exists without issuing a count query
+        List<Todo> todos = deadlines.read(() -> todoService.getTodosAfter(afterId, pageSize + 1));
+
+        GetAllTodosResponse.Builder response = GetAllTodosResponse.newBuilder();
+        todos.stream()
+                .limit(pageSize)
+                .map(TodoGrpcService::mapToGrpcTodo)
+                .forEach(response::addTodos);
+        if (todos.size() > pageSize) {
+            response.setNextPageToken(PageTokens.encode(todos.get(pageSize - 1).getId()));
+        }
+
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void listTodos(ListTodosRequest request, StreamObserver<ListTodosResponse> responseObserver) {
+        // Rejected rather than clamped, so a caller never mistakes a cut-off list for the whole result
+        if (request.getLimit() < 0 || request.getLimit() > MAX_PAGE_SIZE) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("limit must be between 0 and " + MAX_PAGE_SIZE)
+                    .asRuntimeException());
+            return;
+        }
+
+        Sort.Direction direction = request.getDescending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = request.getSortBy() == ListTodosRequest.SortField.TITLE
+                // Ties on title are broken by id so the order is stable between calls
+                ? Sort.by(direction, "title").and(Sort.by(direction, "id"))
+                : Sort.by(direction, "id");
+        int limit = request.getLimit() > 0 ? request.getLimit() : MAX_PAGE_SIZE;
+
+        // One row past the limit tells whether the list was cut off
+        List<Todo> todos = deadlines.read(() -> todoService.listTodos(
+                request.hasCompleted() ? request.getCompleted() : null, request.getTitlePrefix(), sort, limit + 1));
+
+        ListTodosResponse.Builder response = ListTodosResponse.newBuilder()
+                .setTruncated(todos.size() > limit);
+        todos.stream()
+                .limit(limit)
+                .map(TodoGrpcService::mapToGrpcTodo)
+                .forEach(response::addTodos);
+
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void searchTodos(SearchTodosRequest request, StreamObserver<SearchTodosResponse> responseObserver) {
+        if (request.getPageSize() < 0) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("page_size must not be negative")
+                    .asRuntimeException());
+            return;
+        }
+        long offset;
+        try {
+            // Ranks shift as todos change, so the token is a plain offset into the ranked hits
+            offset = PageTokens.decode(request.getPageToken());
+        } catch (StatusRuntimeException e) {
+            responseObserver.onError(e);
+            return;
+        }
+        int pageSize = request.getPageSize() > 0 ? Math.min(request.getPageSize(), MAX_PAGE_SIZE) : DEFAULT_SEARCH_PAGE_SIZE;
+
+        TodoSearchIndex.Hits hits = searchIndex.search(request.getQuery(), (int) Math.min(offset, Integer.MAX_VALUE - pageSize), pageSize);
+        // The index only holds ids; the page itself is one primary-key lookup
+        Map<Long, Todo> found = deadlines.read(() -> todoService.getTodosByIds(hits.getIds())).stream()
+                .collect(Collectors.toMap(Todo::getId, Function.identity()));
+
+        SearchTodosResponse.Builder response = SearchTodosResponse.newBuilder()
+                .setTotalSize(hits.getTotal());
+        for (Long id : hits.getIds()) {
+            Todo todo = found.get(id);
+            // A todo deleted since the lookup is simply left out
+            if (todo != null) {
+                response.addTodos(mapToGrpcTodo(todo));
+            }
+        }
+        if (offset + hits.getIds().size() < hits.getTotal()) {
+            response.setNextPageToken(PageTokens.encode(offset + hits.getIds().size()));
+        }
+
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
     @Override
     public void getTodo(GetTodoRequest request, StreamObserver<com.example.grpc.todo.Todo> responseObserver) {
+        if (!checkId(request.getId(), responseObserver)) {
+            return;
+        }
         Long id = request.getId();
-        Optional<Todo> todoOptional = todoService.getTodoById(id);
+        Optional<Todo> todoOptional = todoService.getTodoById(id, deadlines::read);
         
         if (todoOptional.isPresent()) {
-            com.example.grpc.todo.Todo grpcTodo = mapToGrpcTodo(todoOptional.get());
+            Todo todo = todoOptional.get();
+            com.example.grpc.todo.Todo grpcTodo;
+            if (request.hasIfNotVersion() && request.getIfNotVersion() == currentVersion(todo)) {
+                // The caller's copy is current, so skip the payload
+                grpcTodo = com.example.grpc.todo.Todo.newBuilder()
+                        .setId(todo.getId())
+                        .setVersion(currentVersion(todo))
+                        .build();
+            } else {
+                grpcTodo = mapToGrpcTodo(todo);
+            }
             responseObserver.onNext(grpcTodo);
             responseObserver.onCompleted();
         } else {
@@ -56,35 +262,60 @@ public class TodoGrpcService extends TodoServiceGrpc.TodoServiceImplBase {
 
     @Override
     public void createTodo(CreateTodoRequest request, StreamObserver<com.example.grpc.todo.Todo> responseObserver) {
-        Todo todo = Todo.builder()
-                .title(request.getTitle())
-                .description(request.getDescription())
-                .completed(request.getCompleted())
-                .build();
-        
-        Todo savedTodo = todoService.createTodo(todo);
-        com.example.grpc.todo.Todo grpcTodo = mapToGrpcTodo(savedTodo);
-        
-        responseObserver.onNext(grpcTodo);
-        responseObserver.onCompleted();
+        Todo todo = mapToNewTodo(request);
+        writeExecutor.submit(() -> deadlines.write(() -> todoService.createTodo(todo))).whenComplete((savedTodo, error) -> {
+            if (error != null) {
+                responseObserver.onError(writeFailed(error));
+                return;
+            }
+            responseObserver.onNext(mapToGrpcTodo(savedTodo));
+            responseObserver.onCompleted();
+        });
     }
 
     @Override
     public void updateTodo(UpdateTodoRequest request, StreamObserver<com.example.grpc.todo.Todo> responseObserver) {
+        if (!checkId(request.getId(), responseObserver)) {
+            return;
+        }
+        if (request.getUpdateMask().getPathsCount() > 0) {
+            updateTodoFields(request, responseObserver);
+            return;
+        }
+
         Long id = request.getId();
-        Optional<Todo> todoOptional = todoService.getTodoById(id);
+        Optional<Todo> todoOptional = todoService.getTodoById(id, deadlines::read);
         
         if (todoOptional.isPresent()) {
             Todo todo = todoOptional.get();
+            if (request.hasIfVersion()) {
+                if (request.getIfVersion() != currentVersion(todo)) {
+                    responseObserver.onError(staleVersion(id, request.getIfVersion()));
+                    return;
+                }
+                // Writing with the caller's version makes the UPDATE itself check it, closing the race after the read
+                todo.setVersion(request.getIfVersion());
+            }
             todo.setTitle(request.getTitle());
             todo.setDescription(request.getDescription());
             todo.setCompleted(request.getCompleted());
-            
-            Todo updatedTodo = todoService.updateTodo(todo);
-            com.example.grpc.todo.Todo grpcTodo = mapToGrpcTodo(updatedTodo);
-            
-            responseObserver.onNext(grpcTodo);
-            responseObserver.onCompleted();
+
+            writeExecutor.submit(() -> deadlines.write(() -> todoService.updateTodo(todo))).whenComplete((updatedTodo, error) -> {
+                if (error instanceof OptimisticLockingFailureException) {
+                    responseObserver.onError(request.hasIfVersion()
+                            ? staleVersion(id, request.getIfVersion())
+                            : Status.ABORTED
+                                    .withDescription("Todo " + id + " was modified concurrently")
+                                    .asRuntimeException());
+                    return;
+                }
+                if (error != null) {
+                    responseObserver.onError(writeFailed(error));
+                    return;
+                }
+                responseObserver.onNext(mapToGrpcTodo(updatedTodo));
+                responseObserver.onCompleted();
+            });
         } else {
             responseObserver.onError(Status.NOT_FOUND
                     .withDescription("Todo not found with id " + id)
@@ -92,10 +323,54 @@ public class TodoGrpcService extends TodoServiceGrpc.TodoServiceImplBase {
         }
     }
 
+    // A masked update goes straight to a single UPDATE of the named columns, with no read-modify-write
+    private void updateTodoFields(UpdateTodoRequest request, StreamObserver<com.example.grpc.todo.Todo> responseObserver) {
+        Long id = request.getId();
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String path : request.getUpdateMask().getPathsList()) {
+            switch (path) {
+                case "title":
+                    values.put("title", request.getTitle());
+                    break;
+                case "description":
+                    values.put("description", request.getDescription());
+                    break;
+                case "completed":
+                    values.put("completed", request.getCompleted());
+                    break;
+                default:
+                    responseObserver.onError(Status.INVALID_ARGUMENT
+                            .withDescription("update_mask path '" + path + "' is not updatable")
+                            .asRuntimeException());
+                    return;
+            }
+        }
+
+        Long expectedVersion = request.hasIfVersion() ? request.getIfVersion() : null;
+        writeExecutor.submit(() -> deadlines.write(() -> todoService.updateTodoFields(id, values, expectedVersion)))
+                .whenComplete((updated, error) -> {
+                    if (error instanceof OptimisticLockingFailureException) {
+                        responseObserver.onError(staleVersion(id, request.getIfVersion()));
+                    } else if (error != null) {
+                        responseObserver.onError(writeFailed(error));
+                    } else if (updated.isPresent()) {
+                        responseObserver.onNext(mapToGrpcTodo(updated.get()));
+                        responseObserver.onCompleted();
+                    } else {
+                        responseObserver.onError(Status.NOT_FOUND
+                                .withDescription("Todo not found with id " + id)
+                                .asRuntimeException());
+                    }
+                });
+    }
+
     @Override
     public void deleteTodo(DeleteTodoRequest request, StreamObserver<DeleteTodoResponse> responseObserver) {
+        if (!checkId(request.getId(), responseObserver)) {
+            return;
+        }
         Long id = request.getId();
-        boolean deleted = todoService.deleteTodo(id);
+        boolean deleted = deadlines.write(() -> todoService.deleteTodo(id));
         
         DeleteTodoResponse response = DeleteTodoResponse.newBuilder()
                 .setSuccess(deleted)
@@ -105,12 +380,318 @@ public class TodoGrpcService extends TodoServiceGrpc.TodoServiceImplBase {
         responseObserver.onCompleted();
     }
     
-    private com.example.grpc.todo.Todo mapToGrpcTodo(Todo todo) {
+    @Override
+    public void batchCreateTodos(BatchCreateTodosRequest request, StreamObserver<BatchCreateTodosResponse> responseObserver) {
+        if (!checkBatchSize(request.getRequestsCount(), responseObserver)) {
+            return;
+        }
+
+        List<Todo> todos = request.getRequestsList().stream()
+                .map(this::mapToNewTodo)
+                .collect(Collectors.toList());
+
+        // One transaction for the whole batch; the pooled id sequence lets the inserts go out as JDBC batches
+        List<Todo> savedTodos = deadlines.write(() -> todoService.createTodos(todos));
+
+        BatchCreateTodosResponse response = BatchCreateTodosResponse.newBuilder()
+                .addAllTodos(savedTodos.stream().map(TodoGrpcService::mapToGrpcTodo).collect(Collectors.toList()))
+                .build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void batchGetTodos(BatchGetTodosRequest request, StreamObserver<BatchGetTodosResponse> responseObserver) {
+        if (!checkBatchSize(request.getIdsCount(), responseObserver)) {
+            return;
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(request.getIdsList());
+        Map<Long, Todo> found = deadlines.read(() -> todoService.getTodosByIds(ids)).stream()
+                .collect(Collectors.toMap(Todo::getId, Function.identity()));
+
+        BatchGetTodosResponse.Builder response = BatchGetTodosResponse.newBuilder();
+        for (Long id : ids) {
+            Todo todo = found.get(id);
+            if (todo != null) {
+                response.addTodos(mapToGrpcTodo(todo));
+            } else {
+                response.addMissingIds(id);
+            }
+        }
+
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void batchDeleteTodos(BatchDeleteTodosRequest request, StreamObserver<BatchDeleteTodosResponse> responseObserver) {
+        if (!checkBatchSize(request.getIdsCount(), responseObserver)) {
+            return;
+        }
+
+        int deleted = deleteTodos(request.getIdsList());
+
+        BatchDeleteTodosResponse response = BatchDeleteTodosResponse.newBuilder()
+                .setDeletedCount(deleted)
+                .build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void deleteTodos(DeleteTodosRequest request, StreamObserver<DeleteTodosResponse> responseObserver) {
+        if (request.hasCompleted() == request.getIdsCount() > 0) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Exactly one of ids and completed must be set")
+                    .asRuntimeException());
+            return;
+        }
+        if (!checkBatchSize(request.getIdsCount(), responseObserver)) {
+            return;
+        }
+
+        int deleted = request.hasCompleted()
+                ? deadlines.write(() -> todoService.deleteTodosByCompleted(request.getCompleted()))
+                : deleteTodos(request.getIdsList());
+
+        DeleteTodosResponse response = DeleteTodosResponse.newBuilder()
+                .setDeletedCount(deleted)
+                .build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<CreateTodoRequest> importTodos(StreamObserver<ImportTodosResponse> responseObserver) {
+        return new TodoImporter(importChunkSize, responseObserver);
+    }
+
+    @Override
+    public void watchTodos(WatchTodosRequest request, StreamObserver<TodoEvent> responseObserver) {
+        changeFeed.subscribe(request, responseObserver);
+    }
+
+    // Shared by DeleteTodos and BatchDeleteTodos
+    private int deleteTodos(List<Long> ids) {
+        return deadlines.write(() -> todoService.deleteTodos(new LinkedHashSet<>(ids)));
+    }
+
+    // proto3 sends an unset id as 0, which no todo has
+    private boolean checkId(long id, StreamObserver<?> responseObserver) {
+        if (id <= 0) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("id must be positive")
+                    .asRuntimeException());
+            return false;
+        }
+        return true;
+    }
+
+    private boolean checkBatchSize(int size, StreamObserver<?> responseObserver) {
+        if (size > MAX_BATCH_SIZE) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Batch size " + size + " exceeds the maximum of " + MAX_BATCH_SIZE)
+                    .asRuntimeException());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void streamTodos(StreamTodosRequest request, StreamObserver<com.example.grpc.todo.Todo> responseObserver) {
+        int chunkSize = request.getChunkSize() > 0
+                ? Math.min(request.getChunkSize(), MAX_STREAM_CHUNK_SIZE)
+                : DEFAULT_STREAM_CHUNK_SIZE;
+
+        if (responseObserver instanceof ServerCallStreamObserver) {
+            ServerCallStreamObserver<com.example.grpc.todo.Todo> serverObserver =
+                    (ServerCallStreamObserver<com.example.grpc.todo.Todo>) responseObserver;
+            TodoStreamer streamer = new TodoStreamer(chunkSize, serverObserver, serverObserver);
+            serverObserver.setOnCancelHandler(streamer::cancel);
+            // gRPC invokes the handler once the call is ready, and again whenever the client drains its window
+            serverObserver.setOnReadyHandler(streamer);
+        } else {
+            // No transport behind the observer (e.g. direct invocation), so there is no flow control to honor
+            new TodoStreamer(chunkSize, responseObserver, null).run();
+        }
+    }
+
+    private Todo mapToNewTodo(CreateTodoRequest request) {
+        return Todo.builder()
+                .title(request.getTitle())
+                .description(request.getDescription())
+                .completed(request.getCompleted())
+                .build();
+    }
+
+    static com.example.grpc.todo.Todo mapToGrpcTodo(Todo todo) {
         return com.example.grpc.todo.Todo.newBuilder()
                 .setId(todo.getId())
                 .setTitle(todo.getTitle())
                 .setDescription(todo.getDescription())
                 .setCompleted(todo.isCompleted())
+                .setVersion(currentVersion(todo))
                 .build();
     }
+
+    private static long currentVersion(Todo todo) {
+        return todo.getVersion() != null ? todo.getVersion() : 0L;
+    }
+
+    private static StatusRuntimeException staleVersion(Long id, long expectedVersion) {
+        return Status.FAILED_PRECONDITION
+                .withDescription("Todo " + id + " is no longer at version " + expectedVersion)
+                .asRuntimeException();
+    }
+
+    // Same status a handler throwing the exception would have produced
+    private static StatusRuntimeException writeFailed(Throwable error) {
+        return Status.fromThrowable(error).asRuntimeException();
+    }
+
+    /**
+     * Pages through the repository by primary key and only pulls the next chunk once the
+     * previous one has been handed to a ready transport, so at most one chunk is held in memory.
+     */
+    private final class TodoStreamer implements Runnable {
+
+        private final int chunkSize;
+        private final StreamObserver<com.example.grpc.todo.Todo> observer;
+        private final ServerCallStreamObserver<com.example.grpc.todo.Todo> flowControl;
+        private final Deque<Todo> buffer = new ArrayDeque<>();
+
+        private long lastId = 0L;
+        private boolean exhausted;
+        private boolean finished;
+        private volatile boolean cancelled;
+
+        TodoStreamer(int chunkSize,
+                     StreamObserver<com.example.grpc.todo.Todo> observer,
+                     ServerCallStreamObserver<com.example.grpc.todo.Todo> flowControl) {
+            this.chunkSize = chunkSize;
+            this.observer = observer;
+            this.flowControl = flowControl;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!finished && !cancelled && isReady()) {
+                    if (buffer.isEmpty()) {
+                        if (exhausted) {
+                            finished = true;
+                            observer.onCompleted();
+                            return;
+                        }
+                        fetchNextChunk();
+                        continue;
+                    }
+                    observer.onNext(mapToGrpcTodo(buffer.poll()));
+                }
+            } catch (StatusRuntimeException e) {
+                // The caller went away or ran out of time between chunks
+                finished = true;
+                observer.onError(e);
+            } catch (RuntimeException e) {
+                finished = true;
+                observer.onError(Status.INTERNAL
+                        .withDescription("Failed to stream todos")
+                        .withCause(e)
+                        .asRuntimeException());
+            }
+        }
+
+        private boolean isReady() {
+            return flowControl == null || flowControl.isReady();
+        }
+
+        private void fetchNextChunk() {
+            List<Todo> chunk = deadlines.read(() -> todoService.getTodosAfter(lastId, chunkSize));
+            if (chunk.size() < chunkSize) {
+                exhausted = true;
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+                buffer.addAll(chunk);
+            }
+        }
+    }
+
+    /**
+     * Buffers incoming rows into fixed-size chunks and commits each chunk in its own transaction.
+     * gRPC only requests the next message once onNext returns, so a slow commit pushes back on the client.
+     */
+    private final class TodoImporter implements StreamObserver<CreateTodoRequest> {
+
+        private final int chunkSize;
+        private final StreamObserver<ImportTodosResponse> responseObserver;
+        private final long startNanos = System.nanoTime();
+        private final List<String> errors = new ArrayList<>();
+
+        private List<Todo> chunk;
+        private long received;
+        private long imported;
+        private long failed;
+
+        TodoImporter(int chunkSize, StreamObserver<ImportTodosResponse> responseObserver) {
+            this.chunkSize = chunkSize;
+            this.responseObserver = responseObserver;
+            this.chunk = new ArrayList<>(chunkSize);
+        }
+
+        @Override
+        public void onNext(CreateTodoRequest request) {
+            received++;
+            chunk.add(mapToNewTodo(request));
+            if (chunk.size() >= chunkSize) {
+                commitChunk();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // The client went away; chunks committed so far stay imported, the partial one is dropped
+            chunk = new ArrayList<>(0);
+        }
+
+        @Override
+        public void onCompleted() {
+            commitChunk();
+
+            ImportTodosResponse response = ImportTodosResponse.newBuilder()
+                    .setReceivedCount(received)
+                    .setImportedCount(imported)
+                    .setFailedCount(failed)
+                    .addAllErrors(errors)
+                    .setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                    .build();
+
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        }
+
+        private void commitChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Todo> pending = chunk;
+            chunk = new ArrayList<>(chunkSize);
+            try {
+                imported += deadlines.write(() -> todoService.importTodos(pending)).size();
+            } catch (RuntimeException e) {
+                failed += pending.size();
+                if (errors.size() < MAX_IMPORT_ERRORS) {
+                    errors.add("Rows " + (received - pending.size() + 1) + "-" + received + ": " + e.getMessage());
+                }
+            }
+        }
+    }
 }
@@ -1,9 +1,58 @@
 package com.example.repository;
 
 import com.example.entity.Todo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface TodoRepository extends JpaRepository<Todo, Long> {
+public interface TodoRepository extends JpaRepository<Todo, Long>, TodoRepositoryCustom {
+
+    // Keyset read: an index range seek on the primary key, independent of how deep the caller is
+    List<Todo> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Filtered list views; Pageable carries the sort and row limit so only the needed rows are read
+    List<Todo> findAllBy(Pageable pageable);
+
+    List<Todo> findByCompleted(boolean completed, Pageable pageable);
+
+    List<Todo> findByTitleStartingWith(String titlePrefix, Pageable pageable);
+
+    List<Todo> findByCompletedAndTitleStartingWith(boolean completed, String titlePrefix, Pageable pageable);
+
+    // One DELETE whose row count tells whether the todo existed; deleteById would look the row up first
+    @Transactional
+    @Modifying
+    @Query("delete from Todo t where t.id = :id")
+    int deleteTodoById(@Param("id") Long id);
+
+    // Locks the rows until the transaction ends, so they cannot change before a bulk delete by the same flag
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t.id from Todo t where t.completed = :completed")
+    List<Long> findIdsByCompleted(@Param("completed") boolean completed);
+
+    // Locks the rows until the transaction ends, so a delete by the ids found removes exactly those
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t.id from Todo t where t.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // A single bulk statement; the derived deleteBy variant would load and remove each row individually
+    @Transactional
+    @Modifying
+    @Query("delete from Todo t where t.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Todo t where t.completed = :completed")
+    int deleteByCompleted(@Param("completed") boolean completed);
 }
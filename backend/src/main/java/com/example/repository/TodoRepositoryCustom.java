@@ -0,0 +1,16 @@
+package com.example.repository;
+
+import java.util.Map;
+
+public interface TodoRepositoryCustom {
+
+    void clearPersistenceContext();
+
+    /**
+     * Sets the given attributes and bumps the version in a single UPDATE, without loading the row.
+     * With an expected version the row is only touched if it is still at that version.
+     *
+     * @return the number of rows updated, 0 if the id doesn't exist or the version didn't match
+     */
+    int updateFields(Long id, Map<String, Object> values, Long expectedVersion);
+}
@@ -0,0 +1,53 @@
+package com.example.repository;
+
+import com.example.entity.Todo;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.Map;
+
+class TodoRepositoryCustomImpl implements TodoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void clearPersistenceContext() {
+        entityManager.clear();
+    }
+
+    @Override
+    @Transactional
+    public int updateFields(Long id, Map<String, Object> values, Long expectedVersion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Todo> update = cb.createCriteriaUpdate(Todo.class);
+        Root<Todo> todo = update.from(Todo.class);
+
+        // Only the requested columns end up in the SET clause
+        values.forEach(update::set);
+        // Bulk updates bypass @Version, so keep optimistic readers honest by hand
+        update.set(todo.<Long>get("version"), cb.sum(todo.<Long>get("version"), 1L));
+
+        // Bound parameters rather than inlined literals, so the statement text stays the same across ids
+        ParameterExpression<Long> idParam = cb.parameter(Long.class);
+        ParameterExpression<Long> versionParam = cb.parameter(Long.class);
+        Predicate where = cb.equal(todo.get("id"), idParam);
+        if (expectedVersion != null) {
+            where = cb.and(where, cb.equal(todo.get("version"), versionParam));
+        }
+        update.where(where);
+
+        Query query = entityManager.createQuery(update).setParameter(idParam, id);
+        if (expectedVersion != null) {
+            query.setParameter(versionParam, expectedVersion);
+        }
+        return query.executeUpdate();
+    }
+}
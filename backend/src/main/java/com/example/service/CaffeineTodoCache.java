@@ -0,0 +1,53 @@
+package com.example.service;
+
+import com.example.entity.Todo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache using Caffeine's W-TinyLFU eviction, which keeps frequently read todos
+ * resident even when a scan touches many cold ones.
+ *
+ * <p>Loads run inside Caffeine's per-key compute, and invalidation of the same key waits for an
+ * in-flight load to finish. A writer that invalidates after committing therefore can never be
+ * overtaken by a reader that loaded the previous row.
+ */
+public class CaffeineTodoCache implements TodoCache {
+
+    private final Cache<Long, Todo> cache;
+
+    public CaffeineTodoCache(long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<Todo> get(Long id, Function<Long, Optional<Todo>> loader) {
+        // Misses aren't cached: a null from the mapping function leaves no entry behind
+        Todo cached = cache.get(id, key -> loader.apply(key).map(CaffeineTodoCache::copy).orElse(null));
+        return Optional.ofNullable(cached).map(CaffeineTodoCache::copy);
+    }
+
+    @Override
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Cache<Long, Todo> nativeCache() {
+        return cache;
+    }
+
+    private static Todo copy(Todo todo) {
+        return todo.toBuilder().build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Group commit: writes submitted from any number of request threads are queued and run by one
+ * writer thread, which takes whatever has queued up (waiting up to {@code window} after the first
+ * write for more, at most {@code maxBatchSize} in all) and runs the lot in a single transaction.
+ * One commit and one pooled connection then serve a whole burst of writes.
+ *
+ * <p>The persistence context is flushed and cleared after every write, so each write meets the rows
+ * as the writes before it left them: two updates of one todo in a batch conflict on its version just
+ * as they would in separate transactions, and no caller gets back an entity a later write changed.
+ *
+ * <p>If any write of a batch throws, or the commit fails, the batch has rolled back as a whole, so
+ * each of its writes is run again in a transaction of its own; only the writes that fail on their
+ * own report an error. This relies on the writes being transactional, i.e. on the JPA store.
+ */
+public class CoalescingTodoWriteExecutor implements TodoWriteExecutor, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CoalescingTodoWriteExecutor.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public CoalescingTodoWriteExecutor(PlatformTransactionManager transactionManager, EntityManager entityManager,
+                                       int maxBatchSize, Duration window) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.writer = new Thread(this::run, "todo-write-coalescer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(Supplier<T> write) {
+        PendingWrite<T> pending = new PendingWrite<>(write);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException("The todo writer has shut down"));
+            return pending.future;
+        }
+        queue.add(pending);
+        return pending.future;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        // Whatever is queued still gets written
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void run() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException | Error e) {
+                log.error("Todo writer failed on a batch of {}", batch.size(), e);
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingWrite<?>> batch) {
+        if (batch.size() == 1) {
+            batch.get(0).runAlone();
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(pending -> {
+                pending.run();
+                entityManager.flush();
+                entityManager.clear();
+            }));
+        } catch (RuntimeException e) {
+            log.debug("Batch of {} todo writes rolled back, retrying them one by one", batch.size(), e);
+            batch.forEach(PendingWrite::runAlone);
+            return;
+        }
+        batch.forEach(PendingWrite::complete);
+    }
+
+    private final class PendingWrite<T> {
+
+        private final Supplier<T> write;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        PendingWrite(Supplier<T> write) {
+            this.write = write;
+        }
+
+        void run() {
+            result = write.get();
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+
+        void runAlone() {
+            try {
+                future.complete(transactionTemplate.execute(status -> write.get()));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
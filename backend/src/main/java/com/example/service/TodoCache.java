@@ -0,0 +1,44 @@
+package com.example.service;
+
+import com.example.entity.Todo;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for single todos. Implementations must hand out copies, since callers mutate
+ * the entities they get back before saving them.
+ */
+public interface TodoCache {
+
+    Optional<Todo> get(Long id, Function<Long, Optional<Todo>> loader);
+
+    void invalidate(Long id);
+
+    void invalidateAll();
+
+    static TodoCache none() {
+        return NoTodoCache.INSTANCE;
+    }
+
+    final class NoTodoCache implements TodoCache {
+
+        private static final NoTodoCache INSTANCE = new NoTodoCache();
+
+        private NoTodoCache() {
+        }
+
+        @Override
+        public Optional<Todo> get(Long id, Function<Long, Optional<Todo>> loader) {
+            return loader.apply(id);
+        }
+
+        @Override
+        public void invalidate(Long id) {
+        }
+
+        @Override
+        public void invalidateAll() {
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.service;
+
+import com.example.entity.Todo;
+import lombok.Value;
+
+@Value
+public class TodoChangeEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    Type type;
+    Long id;
+    // Null for deletions
+    Todo todo;
+
+    public static TodoChangeEvent created(Todo todo) {
+        return new TodoChangeEvent(Type.CREATED, todo.getId(), todo);
+    }
+
+    public static TodoChangeEvent updated(Todo todo) {
+        return new TodoChangeEvent(Type.UPDATED, todo.getId(), todo);
+    }
+
+    public static TodoChangeEvent deleted(Long id) {
+        return new TodoChangeEvent(Type.DELETED, id, null);
+    }
+}
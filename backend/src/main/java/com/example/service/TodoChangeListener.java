@@ -0,0 +1,10 @@
+package com.example.service;
+
+/**
+ * Receives every committed mutation made through {@link TodoService}. Listeners are called on the
+ * writer's thread, so implementations must hand off anything slow.
+ */
+public interface TodoChangeListener {
+
+    void onTodoChanged(TodoChangeEvent event);
+}
@@ -0,0 +1,350 @@
+package com.example.service;
+
+import com.example.entity.Todo;
+import com.example.store.TodoStore;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over todo titles and descriptions.
+ *
+ * <p>Text is split into lower-cased letter/digit tokens. Each token maps to a posting list: the ids
+ * of the todos containing it, sorted, in a primitive array next to their term weights (a title
+ * occurrence counts {@value #TITLE_WEIGHT} times a description occurrence). A query matches todos
+ * that contain every query token and ranks them by tf-idf. It walks the shortest posting list and
+ * gallops through the others, so it only touches the query tokens' lists and allocates no boxes.
+ *
+ * <p>The index is loaded from the store at startup and then follows committed changes as a
+ * {@link TodoChangeListener}. Changes arrive on the committing threads in no particular order, so
+ * the index remembers the version it holds for each id and ignores anything older. The last
+ * {@value #DELETE_MARKERS} deleted ids are remembered too, so a change that lands just after its
+ * todo's deletion cannot bring it back; changes are handed over right after commit, so a late one
+ * is never further behind than that.
+ */
+@Component
+public class TodoSearchIndex implements TodoChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoSearchIndex.class);
+
+    static final int TITLE_WEIGHT = 2;
+    private static final int LOAD_CHUNK_SIZE = 1000;
+    static final int DELETE_MARKERS = 10_000;
+
+    private final TodoStore todoStore;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Posting> postings = new HashMap<>();
+    // todo id -> its distinct tokens, so an update or delete can find its postings without the old text
+    private final Map<Long, String[]> documents = new HashMap<>();
+    // todo id -> version indexed for it
+    private final Map<Long, Long> versions = new HashMap<>();
+    // Recently deleted ids, oldest first; older ones are dropped so the markers don't grow with every delete
+    private final Map<Long, Boolean> deleted = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > DELETE_MARKERS;
+        }
+    };
+
+    public TodoSearchIndex() {
+        this(null);
+    }
+
+    @Autowired
+    public TodoSearchIndex(TodoStore todoStore) {
+        this.todoStore = todoStore;
+    }
+
+    @PostConstruct
+    void load() {
+        if (todoStore == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Keyset chunks keep the load from materialising the whole table at once
+        long afterId = 0;
+        List<Todo> chunk;
+        do {
+            chunk = todoStore.findAfter(afterId, LOAD_CHUNK_SIZE);
+            chunk.forEach(this::index);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == LOAD_CHUNK_SIZE);
+        log.info("Indexed {} todos for search in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void onTodoChanged(TodoChangeEvent event) {
+        if (event.getType() == TodoChangeEvent.Type.DELETED) {
+            remove(event.getId());
+        } else {
+            index(event.getTodo());
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the todo, replacing whatever was indexed for its id before, unless the index already
+     * holds the same or a later version of it. A todo without a version always replaces.
+     */
+    public void index(Todo todo) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokenize(todo.getTitle())) {
+            weights.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(todo.getDescription())) {
+            weights.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Long indexed = versions.get(todo.getId());
+            if (todo.getVersion() != null
+                    && ((indexed != null && todo.getVersion() <= indexed) || deleted.containsKey(todo.getId()))) {
+                return;
+            }
+            if (todo.getVersion() != null) {
+                versions.put(todo.getId(), todo.getVersion());
+            }
+            removeLocked(todo.getId());
+            weights.forEach((token, weight) -> postings.computeIfAbsent(token, t -> new Posting()).put(todo.getId(), weight));
+            documents.put(todo.getId(), weights.keySet().toArray(new String[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            versions.remove(id);
+            deleted.put(id, Boolean.TRUE);
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long id) {
+        String[] tokens = documents.remove(id);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Posting posting = postings.get(token);
+            posting.remove(id);
+            if (posting.size == 0) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the todos matching every token of the query, best match first (ties by
+     * ascending id), skipping {@code offset} hits and returning at most {@code limit}.
+     */
+    public Hits search(String query, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Hits(Collections.emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            Posting[] lists = new Posting[tokens.size()];
+            int n = 0;
+            for (String token : tokens) {
+                Posting posting = postings.get(token);
+                if (posting == null) {
+                    return new Hits(Collections.emptyList(), 0);
+                }
+                lists[n++] = posting;
+            }
+            // Walk the rarest token's postings and probe the others
+            Arrays.sort(lists, Comparator.comparingInt(posting -> posting.size));
+            double[] idf = new double[lists.length];
+            for (int i = 0; i < idf.length; i++) {
+                idf[i] = Math.log(1 + (double) documents.size() / lists[i].size);
+            }
+            // Cursors only move forward because every list is sorted by id
+            int[] cursors = new int[lists.length];
+
+            int wanted = offset + limit;
+            // Min-heap of the best `wanted` hits seen so far; its head is the weakest of them
+            PriorityQueue<ScoredId> best = new PriorityQueue<>(Math.max(1, Math.min(wanted, lists[0].size)), RANKING.reversed());
+            int total = 0;
+            Posting rarest = lists[0];
+            candidates:
+            for (int c = 0; c < rarest.size; c++) {
+                long id = rarest.ids[c];
+                double score = (1 + Math.log(rarest.weights[c])) * idf[0];
+                for (int i = 1; i < lists.length; i++) {
+                    int at = lists[i].seek(id, cursors[i]);
+                    cursors[i] = at;
+                    if (at == lists[i].size) {
+                        // This list is exhausted, so no later candidate can match either
+                        break candidates;
+                    }
+                    if (lists[i].ids[at] != id) {
+                        continue candidates;
+                    }
+                    score += (1 + Math.log(lists[i].weights[at])) * idf[i];
+                }
+                total++;
+                if (wanted <= 0) {
+                    continue;
+                }
+                ScoredId hit = new ScoredId(id, score);
+                if (best.size() < wanted) {
+                    best.add(hit);
+                } else if (RANKING.compare(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+
+            ScoredId[] ranked = best.toArray(new ScoredId[0]);
+            Arrays.sort(ranked, RANKING);
+            List<Long> ids = new ArrayList<>(Math.max(0, ranked.length - offset));
+            for (int i = offset; i < ranked.length; i++) {
+                ids.add(ranked[i].id);
+            }
+            return new Hits(ids, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Best first: higher score, then lower id
+    private static final Comparator<ScoredId> RANKING = Comparator.<ScoredId>comparingDouble(hit -> -hit.score)
+            .thenComparingLong(hit -> hit.id);
+
+    /**
+     * Ids in ascending order with their weights. New todos have the highest ids, so indexing them
+     * is an append; only re-indexing an existing todo shifts the tail.
+     */
+    private static final class Posting {
+
+        private long[] ids = new long[4];
+        private int[] weights = new int[4];
+        private int size;
+
+        void put(long id, int weight) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                weights[at] = weight;
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            System.arraycopy(weights, at, weights, at + 1, size - at);
+            ids[at] = id;
+            weights[at] = weight;
+            size++;
+        }
+
+        void remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            System.arraycopy(weights, at + 1, weights, at, size - at - 1);
+            size--;
+            if (size > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+                weights = Arrays.copyOf(weights, weights.length / 2);
+            }
+        }
+
+        /**
+         * Returns the position of the first id at or after {@code from} that is not below
+         * {@code id}, or {@code size} if there is none. Gallops so that skipping far ahead costs
+         * log(distance) probes.
+         */
+        int seek(long id, int from) {
+            int low = from;
+            int step = 1;
+            int high = from;
+            while (high < size && ids[high] < id) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            int at = Arrays.binarySearch(ids, low, high, id);
+            return at >= 0 ? at : -at - 1;
+        }
+    }
+
+    private static final class ScoredId {
+
+        private final long id;
+        private final double score;
+
+        ScoredId(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    @Value
+    public static class Hits {
+        // Ids of the requested slice, in rank order
+        List<Long> ids;
+        // Number of todos matching the query
+        int total;
+    }
+}
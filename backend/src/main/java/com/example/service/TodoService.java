@@ -2,43 +2,203 @@ package com.example.service;
 
 import com.example.entity.Todo;
 import com.example.repository.TodoRepository;
+import com.example.store.JpaTodoStore;
+import com.example.store.TodoStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class TodoService {
 
-    private final TodoRepository todoRepository;
+    private static final Logger log = LoggerFactory.getLogger(TodoService.class);
+
+    private final TodoStore todoStore;
+    private final TodoCache todoCache;
+    private final List<TodoChangeListener> changeListeners;
+    // Bumped after every committed mutation, so readers can tell whether anything changed since they last looked.
+    // Seeded from the clock so a version handed out before a restart doesn't match the fresh in-memory data.
+    private final AtomicLong mutationVersion = new AtomicLong(System.currentTimeMillis());
 
-    @Autowired
     public TodoService(TodoRepository todoRepository) {
-        this.todoRepository = todoRepository;
+        this(todoRepository, TodoCache.none(), Collections.emptyList());
+    }
+
+    public TodoService(TodoRepository todoRepository, TodoCache todoCache, List<TodoChangeListener> changeListeners) {
+        this(new JpaTodoStore(todoRepository), todoCache, changeListeners);
+    }
+
+    @Autowired
+    public TodoService(TodoStore todoStore, TodoCache todoCache, List<TodoChangeListener> changeListeners) {
+        this.todoStore = todoStore;
+        this.todoCache = todoCache;
+        this.changeListeners = changeListeners;
+    }
+
+    public long getMutationVersion() {
+        return mutationVersion.get();
     }
 
     public List<Todo> getAllTodos() {
-        return todoRepository.findAll();
+        return todoStore.findAll();
+    }
+
+    public List<Todo> getTodosAfter(Long afterId, int limit) {
+        return todoStore.findAfter(afterId, limit);
+    }
+
+    /**
+     * Returns up to {@code limit} todos matching the optional filters, in the given order.
+     *
+     * @param completed   null for both completed and pending todos
+     * @param titlePrefix null or empty to match every title
+     */
+    public List<Todo> listTodos(Boolean completed, String titlePrefix, Sort sort, int limit) {
+        return todoStore.list(completed, titlePrefix, sort, limit);
     }
 
     public Optional<Todo> getTodoById(Long id) {
-        return todoRepository.findById(id);
+        return getTodoById(id, Supplier::get);
+    }
+
+    /**
+     * @param load runs the store read on a cache miss, e.g. under the caller's deadline; a cache hit
+     *             never calls it, so it costs no transaction or connection
+     */
+    public Optional<Todo> getTodoById(Long id, Function<Supplier<Optional<Todo>>, Optional<Todo>> load) {
+        return todoCache.get(id, key -> load.apply(() -> todoStore.findById(key)));
     }
 
     public Todo createTodo(Todo todo) {
-        return todoRepository.save(todo);
+        Todo saved = todoStore.save(todo);
+        publish(TodoChangeEvent.created(saved));
+        return saved;
+    }
+
+    public List<Todo> createTodos(List<Todo> todos) {
+        List<Todo> saved = todoStore.saveAll(todos);
+        saved.forEach(todo -> publish(TodoChangeEvent.created(todo)));
+        return saved;
+    }
+
+    @Transactional
+    public List<Todo> importTodos(List<Todo> chunk) {
+        List<Todo> saved = todoStore.importAll(chunk);
+        saved.forEach(todo -> publish(TodoChangeEvent.created(todo)));
+        return saved;
+    }
+
+    public List<Todo> getTodosByIds(Collection<Long> ids) {
+        return todoStore.findAllById(ids);
+    }
+
+    @Transactional
+    public int deleteTodos(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Long> deleted = todoStore.deleteAllById(ids);
+        for (Long id : deleted) {
+            invalidate(id);
+            publish(TodoChangeEvent.deleted(id));
+        }
+        return deleted.size();
     }
 
     public Todo updateTodo(Todo todo) {
-        return todoRepository.save(todo);
+        Todo saved = todoStore.save(todo);
+        invalidate(saved.getId());
+        publish(TodoChangeEvent.updated(saved));
+        return saved;
+    }
+
+    /**
+     * Applies a partial update with one store write and returns the row as that write left it, or
+     * empty if no todo has that id.
+     *
+     * @throws OptimisticLockingFailureException if the todo is no longer at the expected version
+     */
+    @Transactional
+    public Optional<Todo> updateTodoFields(Long id, Map<String, Object> values, Long expectedVersion) {
+        Optional<Todo> updated = todoStore.updateFields(id, values, expectedVersion);
+        if (updated.isEmpty()) {
+            if (expectedVersion != null && todoStore.existsById(id)) {
+                throw new OptimisticLockingFailureException("Todo " + id + " is no longer at version " + expectedVersion);
+            }
+            return Optional.empty();
+        }
+        invalidate(id);
+        publish(TodoChangeEvent.updated(updated.get()));
+        return updated;
     }
 
     public boolean deleteTodo(Long id) {
-        if (todoRepository.existsById(id)) {
-            todoRepository.deleteById(id);
-            return true;
+        if (todoStore.deleteById(id) == 0) {
+            return false;
+        }
+        invalidate(id);
+        publish(TodoChangeEvent.deleted(id));
+        return true;
+    }
+
+    @Transactional
+    public int deleteTodosByCompleted(boolean completed) {
+        List<Long> deleted = todoStore.deleteByCompleted(completed);
+        if (deleted.isEmpty()) {
+            return 0;
+        }
+        // One sweep instead of an entry per deleted todo
+        afterCommit(todoCache::invalidateAll);
+        deleted.forEach(id -> publish(TodoChangeEvent.deleted(id)));
+        return deleted.size();
+    }
+
+    private void invalidate(Long id) {
+        // Dropped any earlier, a concurrent read could cache the old row again before the commit lands
+        afterCommit(() -> todoCache.invalidate(id));
+    }
+
+    private void publish(TodoChangeEvent event) {
+        // Neither the version nor the listeners may reflect a change that could still roll back
+        afterCommit(() -> notifyListeners(event));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void notifyListeners(TodoChangeEvent event) {
+        mutationVersion.incrementAndGet();
+        for (TodoChangeListener listener : changeListeners) {
+            try {
+                listener.onTodoChanged(event);
+            } catch (RuntimeException e) {
+                log.warn("Todo change listener {} failed for {}", listener, event, e);
+            }
         }
-        return false;
     }
 }
@@ -0,0 +1,37 @@
+package com.example.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs single-todo writes on behalf of request handlers. The future completes with the write's
+ * result, or exceptionally with the exception it threw.
+ */
+public interface TodoWriteExecutor {
+
+    <T> CompletableFuture<T> submit(Supplier<T> write);
+
+    /**
+     * Runs each write on the calling thread, in its own transaction as before.
+     */
+    static TodoWriteExecutor direct() {
+        return DirectTodoWriteExecutor.INSTANCE;
+    }
+
+    final class DirectTodoWriteExecutor implements TodoWriteExecutor {
+
+        private static final DirectTodoWriteExecutor INSTANCE = new DirectTodoWriteExecutor();
+
+        private DirectTodoWriteExecutor() {
+        }
+
+        @Override
+        public <T> CompletableFuture<T> submit(Supplier<T> write) {
+            try {
+                return CompletableFuture.completedFuture(write.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    }
+}
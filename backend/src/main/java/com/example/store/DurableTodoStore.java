@@ -0,0 +1,435 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link InMemoryTodoStore} that survives restarts: every write is appended to a checksummed
+ * {@link TodoLog}, and once the log has grown past a threshold the store is written to a
+ * {@link TodoSnapshot} and the older log is deleted.
+ *
+ * <p>Files live in one directory as {@code snapshot-<generation>.dat} and
+ * {@code log-<generation>.wal}. A snapshot of generation G covers every log older than G, so
+ * recovery maps the newest snapshot and replays only the logs of generation G and later.
+ *
+ * <p>With a zero fsync interval a write returns only after its log entry is forced to disk;
+ * concurrent writers share a force. With a positive interval the log is forced in the background,
+ * so a power failure can lose up to that much acknowledged work (a process crash loses nothing).
+ * Every write is logged before it is applied, and if the log cannot be written the store rejects
+ * all further writes rather than let memory and disk drift apart.
+ */
+public class DurableTodoStore implements TodoStore, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DurableTodoStore.class);
+
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.dat");
+    private static final Pattern LOG_FILE = Pattern.compile("log-(\\d+)\\.wal");
+
+    private final InMemoryTodoStore delegate;
+    private final Path directory;
+    private final boolean syncEachWrite;
+    private final long snapshotLogSize;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ScheduledExecutorService background;
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private volatile TodoLog todoLog;
+    private long generation;
+    private volatile IOException failure;
+
+    private DurableTodoStore(InMemoryTodoStore delegate, Path directory, long generation, Duration fsyncInterval, long snapshotLogSize)
+            throws IOException {
+        this.delegate = delegate;
+        this.directory = directory;
+        this.generation = generation;
+        this.syncEachWrite = fsyncInterval.isZero();
+        this.snapshotLogSize = snapshotLogSize;
+        this.todoLog = TodoLog.create(logPath(generation));
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "todo-store-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!syncEachWrite) {
+            long interval = fsyncInterval.toMillis();
+            background.scheduleWithFixedDelay(this::syncInBackground, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Recovers the store kept in {@code directory}, creating the directory if needed.
+     *
+     * @param fsyncInterval   zero to force the log on every write, otherwise how often to force it
+     * @param snapshotLogSize log size in bytes at which a snapshot is taken
+     */
+    public static DurableTodoStore open(Path directory, Duration fsyncInterval, long snapshotLogSize) throws IOException {
+        Files.createDirectories(directory);
+        NavigableMap<Long, Path> snapshots = list(directory, SNAPSHOT_FILE);
+        NavigableMap<Long, Path> logs = list(directory, LOG_FILE);
+        long start = System.nanoTime();
+
+        InMemoryTodoStore store = new InMemoryTodoStore();
+        long snapshotGeneration = 0;
+        long loaded = 0;
+        if (!snapshots.isEmpty()) {
+            snapshotGeneration = snapshots.lastKey();
+            loaded = TodoSnapshot.load(snapshots.lastEntry().getValue(), store);
+        }
+
+        long[] replayed = new long[1];
+        TodoRecords.Handler replayer = new TodoRecords.Handler() {
+            @Override
+            public void put(long id, long version, boolean completed, byte[] title, byte[] description) {
+                store.restore(id, version, completed, title, description);
+                replayed[0]++;
+            }
+
+            @Override
+            public void delete(long id) {
+                store.deleteById(id);
+                replayed[0]++;
+            }
+        };
+        NavigableMap<Long, Path> tail = logs.tailMap(snapshotGeneration, true);
+        for (Map.Entry<Long, Path> segment : tail.entrySet()) {
+            Path path = segment.getValue();
+            long intact = TodoLog.replay(path, replayer);
+            long size = Files.size(path);
+            if (intact < size) {
+                if (!segment.getKey().equals(tail.lastKey())) {
+                    throw new IOException("Log segment " + path + " is corrupt at byte " + intact);
+                }
+                // Only the segment being written when the process died can end in a torn entry
+                log.warn("Dropping {} bytes of torn log entry at the end of {}", size - intact, path);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(intact);
+                    channel.force(true);
+                }
+            }
+        }
+        log.info("Recovered {} todos from {} ({} snapshot records, {} log entries) in {} ms",
+                store.size(), directory, loaded, replayed[0], (System.nanoTime() - start) / 1_000_000);
+
+        long generation = Math.max(snapshotGeneration, logs.isEmpty() ? 0 : logs.lastKey()) + 1;
+        DurableTodoStore durable = new DurableTodoStore(store, directory, generation, fsyncInterval, snapshotLogSize);
+        // A crash between writing a snapshot and cleaning up can leave files it already covers
+        durable.deleteBefore(snapshotGeneration);
+        return durable;
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Todo> findAfter(long afterId, int limit) {
+        return delegate.findAfter(afterId, limit);
+    }
+
+    @Override
+    public Optional<Todo> findById(long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<Todo> list(Boolean completed, String titlePrefix, Sort sort, int limit) {
+        return delegate.list(completed, titlePrefix, sort, limit);
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return delegate.existsById(id);
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        return write(() -> saveLogged(todo));
+    }
+
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        return write(() -> {
+            List<Todo> saved = new ArrayList<>(todos.size());
+            for (Todo todo : todos) {
+                saved.add(saveLogged(todo));
+            }
+            return saved;
+        });
+    }
+
+    @Override
+    public List<Todo> importAll(List<Todo> todos) {
+        return saveAll(todos);
+    }
+
+    @Override
+    public Optional<Todo> updateFields(long id, Map<String, Object> values, Long expectedVersion) {
+        return write(() -> {
+            Optional<Todo> current = delegate.findById(id);
+            if (current.isEmpty() || (expectedVersion != null && current.get().getVersion() != expectedVersion.longValue())) {
+                return Optional.empty();
+            }
+            Todo.TodoBuilder updated = current.get().toBuilder().version(current.get().getVersion() + 1);
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                switch (value.getKey()) {
+                    case "title":
+                        updated.title((String) value.getValue());
+                        break;
+                    case "description":
+                        updated.description((String) value.getValue());
+                        break;
+                    case "completed":
+                        updated.completed((Boolean) value.getValue());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown todo field '" + value.getKey() + "'");
+                }
+            }
+            append(updated.build());
+            return delegate.updateFields(id, values, expectedVersion);
+        });
+    }
+
+    @Override
+    public int deleteById(long id) {
+        return write(() -> deleteLogged(id) ? 1 : 0);
+    }
+
+    @Override
+    public List<Long> deleteAllById(Collection<Long> ids) {
+        return write(() -> {
+            List<Long> deleted = new ArrayList<>();
+            for (Long id : ids) {
+                if (deleteLogged(id)) {
+                    deleted.add(id);
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public List<Long> deleteByCompleted(boolean completed) {
+        return write(() -> {
+            List<Long> ids = delegate.findIdsByCompleted(completed);
+            for (Long id : ids) {
+                todoLog.appendDelete(id);
+            }
+            delegate.deleteAllById(ids);
+            return ids;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            todoLog.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Rolls the log over to a new generation, writes a snapshot of that generation and deletes the
+     * files it supersedes.
+     */
+    void snapshot() throws IOException {
+        long snapshotGeneration;
+        long nextId;
+        writeLock.lock();
+        try {
+            checkHealthy();
+            TodoLog previous = todoLog;
+            snapshotGeneration = generation + 1;
+            todoLog = TodoLog.create(logPath(snapshotGeneration));
+            generation = snapshotGeneration;
+            nextId = delegate.nextId();
+            try {
+                previous.close();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        // Writes keep going meanwhile; they land in the new log, which recovery replays over the snapshot
+        long start = System.nanoTime();
+        long count = TodoSnapshot.write(snapshotPath(snapshotGeneration), nextId, delegate);
+        syncDirectory();
+        deleteBefore(snapshotGeneration);
+        log.info("Wrote snapshot {} with {} todos in {} ms", snapshotGeneration, count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private <T> T write(LogWrite<T> operation) {
+        TodoLog current;
+        long position;
+        T result;
+        writeLock.lock();
+        try {
+            checkHealthy();
+            current = todoLog;
+            result = operation.apply();
+            position = current.size();
+        } catch (IOException e) {
+            failure = e;
+            throw new DataAccessResourceFailureException("Could not append to the todo log in " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (syncEachWrite) {
+            try {
+                current.sync(position);
+            } catch (IOException e) {
+                failure = e;
+                throw new DataAccessResourceFailureException("Could not sync the todo log in " + directory, e);
+            }
+        }
+        if (current.size() >= snapshotLogSize && snapshotting.compareAndSet(false, true)) {
+            background.execute(this::snapshotInBackground);
+        }
+        return result;
+    }
+
+    /**
+     * Logs the todo as the delegate is about to store it, then stores it. Runs under the write
+     * lock, so the delegate cannot change in between and a failed append leaves it untouched.
+     */
+    private Todo saveLogged(Todo todo) throws IOException {
+        if (todo.getId() == null) {
+            append(todo.toBuilder().id(delegate.nextId()).version(0L).build());
+            return delegate.save(todo);
+        }
+        Todo current = delegate.findById(todo.getId())
+                .orElseThrow(() -> new OptimisticLockingFailureException("Todo " + todo.getId() + " was deleted"));
+        if (todo.getVersion() != null && !todo.getVersion().equals(current.getVersion())) {
+            throw new OptimisticLockingFailureException("Todo " + todo.getId() + " is no longer at version " + todo.getVersion());
+        }
+        append(todo.toBuilder().version(current.getVersion() + 1).build());
+        return delegate.save(todo);
+    }
+
+    private boolean deleteLogged(long id) throws IOException {
+        if (!delegate.existsById(id)) {
+            return false;
+        }
+        todoLog.appendDelete(id);
+        return delegate.deleteById(id) > 0;
+    }
+
+    private void append(Todo todo) throws IOException {
+        todoLog.appendPut(todo.getId(), todo.getVersion(), todo.isCompleted(),
+                TodoRecords.utf8(todo.getTitle()), TodoRecords.utf8(todo.getDescription()));
+    }
+
+    private void checkHealthy() {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new DataAccessResourceFailureException("The todo log in " + directory + " failed earlier; writes are disabled", cause);
+        }
+    }
+
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // The log keeps every write, so a failed snapshot only means a longer replay next start
+            log.warn("Could not snapshot the todo store in {}", directory, e);
+        } finally {
+            snapshotting.set(false);
+        }
+    }
+
+    private void syncInBackground() {
+        try {
+            todoLog.sync();
+        } catch (IOException e) {
+            failure = e;
+            log.error("Could not sync the todo log in {}; writes are disabled", directory, e);
+        }
+    }
+
+    private void deleteBefore(long generation) throws IOException {
+        for (Pattern pattern : new Pattern[] {SNAPSHOT_FILE, LOG_FILE}) {
+            for (Path path : list(directory, pattern).headMap(generation, false).values()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private void syncDirectory() {
+        // Makes the snapshot's rename durable; not every platform can open a directory for this
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Could not sync directory {}", directory, e);
+        }
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve("log-" + generation + ".wal");
+    }
+
+    private Path snapshotPath(long generation) {
+        return directory.resolve("snapshot-" + generation + ".dat");
+    }
+
+    private static NavigableMap<Long, Path> list(Path directory, Pattern pattern) throws IOException {
+        NavigableMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                Matcher matcher = pattern.matcher(entry.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), entry);
+                }
+            }
+        }
+        return files;
+    }
+
+    @FunctionalInterface
+    private interface LogWrite<T> {
+        T apply() throws IOException;
+    }
+}
@@ -0,0 +1,526 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link TodoStore} held entirely in memory, with no SQL, entities or persistence context in the
+ * way.
+ *
+ * <p>Each todo occupies a slot in parallel primitive arrays (id, version, completed flag and the
+ * location of its text). An id-to-slot {@link LongIntHashMap} finds it without boxing. Titles and
+ * descriptions are stored as UTF-8 in an {@link OffHeapArena}, so a million todos cost a few
+ * arrays on the heap rather than millions of objects. An ascending array of ids serves keyset
+ * reads; deleted ids stay in it until more than half of it is stale.
+ *
+ * <p>Reads share a read lock and writes take the write lock, so every call sees a consistent state.
+ * Todos returned are fresh copies decoded from the arena. The data lives only as long as the JVM.
+ */
+public class InMemoryTodoStore implements TodoStore {
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int NULL_LENGTH = -1;
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntHashMap slotsById = new LongIntHashMap(INITIAL_SLOTS);
+    private OffHeapArena arena = new OffHeapArena(INITIAL_SLOTS * 64);
+    private long nextId = 1;
+
+    // Slot storage; slotCount is the high-water mark, freed slots are reused from freeSlots
+    private long[] ids = new long[INITIAL_SLOTS];
+    private long[] versions = new long[INITIAL_SLOTS];
+    private boolean[] completed = new boolean[INITIAL_SLOTS];
+    private int[] textOffsets = new int[INITIAL_SLOTS];
+    private int[] titleLengths = new int[INITIAL_SLOTS];
+    private int[] descriptionLengths = new int[INITIAL_SLOTS];
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+
+    // Ids in ascending order, possibly including deleted ones
+    private long[] order = new long[INITIAL_SLOTS];
+    private int orderCount;
+
+    @Override
+    public List<Todo> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Todo> todos = new ArrayList<>(slotsById.size());
+            for (int i = 0; i < orderCount; i++) {
+                int slot = slotsById.get(order[i]);
+                if (slot != LongIntHashMap.MISSING) {
+                    todos.add(read(slot));
+                }
+            }
+            return todos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Todo> findAfter(long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            int start = Arrays.binarySearch(order, 0, orderCount, afterId);
+            start = start >= 0 ? start + 1 : -start - 1;
+            List<Todo> todos = new ArrayList<>(Math.min(limit, slotsById.size()));
+            for (int i = start; i < orderCount && todos.size() < limit; i++) {
+                int slot = slotsById.get(order[i]);
+                if (slot != LongIntHashMap.MISSING) {
+                    todos.add(read(slot));
+                }
+            }
+            return todos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Todo> findById(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = slotsById.get(id);
+            return slot == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(read(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> ids) {
+        lock.readLock().lock();
+        try {
+            List<Todo> todos = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                int slot = slotsById.get(id);
+                if (slot != LongIntHashMap.MISSING) {
+                    todos.add(read(slot));
+                }
+            }
+            return todos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the todos whose completed flag matches, in id order.
+     */
+    List<Long> findIdsByCompleted(boolean completed) {
+        lock.readLock().lock();
+        try {
+            return findIdsByCompletedLocked(completed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> findIdsByCompletedLocked(boolean completed) {
+        List<Long> matching = new ArrayList<>();
+        for (int i = 0; i < orderCount; i++) {
+            int slot = slotsById.get(order[i]);
+            if (slot != LongIntHashMap.MISSING && this.completed[slot] == completed) {
+                matching.add(order[i]);
+            }
+        }
+        return matching;
+    }
+
+    @Override
+    public List<Todo> list(Boolean completed, String titlePrefix, Sort sort, int limit) {
+        byte[] prefix = titlePrefix == null || titlePrefix.isEmpty() ? null : titlePrefix.getBytes(StandardCharsets.UTF_8);
+        Comparator<Todo> comparator = comparator(sort);
+        Sort.Order first = sort.iterator().hasNext() ? sort.iterator().next() : null;
+        boolean idOrder = first == null || first.getProperty().equals("id");
+        boolean descending = first != null && first.isDescending();
+
+        lock.readLock().lock();
+        try {
+            List<Todo> todos = new ArrayList<>();
+            for (int n = 0; n < orderCount; n++) {
+                // Walking the id order backwards gives descending id order without a sort
+                long id = order[descending && idOrder ? orderCount - 1 - n : n];
+                int slot = slotsById.get(id);
+                if (slot == LongIntHashMap.MISSING
+                        || (completed != null && this.completed[slot] != completed)
+                        || (prefix != null && !titleStartsWith(slot, prefix))) {
+                    continue;
+                }
+                todos.add(read(slot));
+                if (idOrder && todos.size() == limit) {
+                    return todos;
+                }
+            }
+            todos.sort(comparator);
+            return todos.size() > limit ? new ArrayList<>(todos.subList(0, limit)) : todos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        lock.readLock().lock();
+        try {
+            return slotsById.get(id) != LongIntHashMap.MISSING;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        lock.writeLock().lock();
+        try {
+            return saveLocked(todo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        lock.writeLock().lock();
+        try {
+            List<Todo> saved = new ArrayList<>(todos.size());
+            for (Todo todo : todos) {
+                saved.add(saveLocked(todo));
+            }
+            return saved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Todo> importAll(List<Todo> todos) {
+        return saveAll(todos);
+    }
+
+    private Todo saveLocked(Todo todo) {
+        if (todo.getId() == null) {
+            long id = nextId++;
+            int slot = allocateSlot();
+            ids[slot] = id;
+            versions[slot] = 0;
+            write(slot, todo.getTitle(), todo.getDescription(), todo.isCompleted());
+            slotsById.put(id, slot);
+            appendToOrder(id);
+            return read(slot);
+        }
+
+        int slot = slotsById.get(todo.getId());
+        if (slot == LongIntHashMap.MISSING) {
+            throw new OptimisticLockingFailureException("Todo " + todo.getId() + " was deleted");
+        }
+        if (todo.getVersion() != null && todo.getVersion() != versions[slot]) {
+            throw new OptimisticLockingFailureException("Todo " + todo.getId() + " is no longer at version " + todo.getVersion());
+        }
+        release(slot);
+        write(slot, todo.getTitle(), todo.getDescription(), todo.isCompleted());
+        versions[slot]++;
+        compactIfNeeded();
+        return read(slotsById.get(todo.getId()));
+    }
+
+    @Override
+    public Optional<Todo> updateFields(long id, Map<String, Object> values, Long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(id);
+            if (slot == LongIntHashMap.MISSING || (expectedVersion != null && versions[slot] != expectedVersion)) {
+                return Optional.empty();
+            }
+            String title = titleLengths[slot] == NULL_LENGTH ? null : decode(textOffsets[slot], titleLengths[slot]);
+            String description = descriptionLengths[slot] == NULL_LENGTH
+                    ? null
+                    : decode(textOffsets[slot] + Math.max(0, titleLengths[slot]), descriptionLengths[slot]);
+            boolean done = completed[slot];
+            boolean textChanged = false;
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                switch (value.getKey()) {
+                    case "title":
+                        title = (String) value.getValue();
+                        textChanged = true;
+                        break;
+                    case "description":
+                        description = (String) value.getValue();
+                        textChanged = true;
+                        break;
+                    case "completed":
+                        done = (Boolean) value.getValue();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown todo field '" + value.getKey() + "'");
+                }
+            }
+            if (textChanged) {
+                release(slot);
+                write(slot, title, description, done);
+                compactIfNeeded();
+            } else {
+                // A flag flip leaves the text where it is
+                completed[slot] = done;
+            }
+            versions[slot]++;
+            return Optional.of(read(slot));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteById(long id) {
+        lock.writeLock().lock();
+        try {
+            return deleteLocked(id) ? 1 : 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> deleteAllById(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            List<Long> deleted = new ArrayList<>();
+            for (Long id : ids) {
+                if (deleteLocked(id)) {
+                    deleted.add(id);
+                }
+            }
+            return deleted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> deleteByCompleted(boolean completed) {
+        lock.writeLock().lock();
+        try {
+            List<Long> ids = findIdsByCompletedLocked(completed);
+            for (Long id : ids) {
+                deleteLocked(id);
+            }
+            return ids;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts a todo back exactly as it was persisted, id and version included, replacing any current
+     * state for that id. Title and description are UTF-8, null for a null field.
+     */
+    void restore(long id, long version, boolean done, byte[] title, byte[] description) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(id);
+            if (slot == LongIntHashMap.MISSING) {
+                slot = allocateSlot();
+                ids[slot] = id;
+                slotsById.put(id, slot);
+                insertIntoOrder(id);
+            } else {
+                release(slot);
+            }
+            write(slot, title, description, done);
+            versions[slot] = version;
+            nextId = Math.max(nextId, id + 1);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the id the next insert will get.
+     */
+    long nextId() {
+        lock.readLock().lock();
+        try {
+            return nextId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Makes sure no insert reuses an id below {@code nextId}, even one whose todo is gone.
+     */
+    void advanceNextId(long nextId) {
+        lock.writeLock().lock();
+        try {
+            this.nextId = Math.max(this.nextId, nextId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean deleteLocked(long id) {
+        int slot = slotsById.remove(id);
+        if (slot == LongIntHashMap.MISSING) {
+            return false;
+        }
+        release(slot);
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+        compactIfNeeded();
+        return true;
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            completed = Arrays.copyOf(completed, capacity);
+            textOffsets = Arrays.copyOf(textOffsets, capacity);
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+            descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+        }
+        return slotCount++;
+    }
+
+    private void appendToOrder(long id) {
+        if (orderCount == order.length) {
+            order = Arrays.copyOf(order, orderCount * 2);
+        }
+        order[orderCount++] = id;
+    }
+
+    private void insertIntoOrder(long id) {
+        if (orderCount == 0 || order[orderCount - 1] < id) {
+            appendToOrder(id);
+            return;
+        }
+        int at = Arrays.binarySearch(order, 0, orderCount, id);
+        if (at >= 0) {
+            // Still there from before the todo was deleted
+            return;
+        }
+        at = -at - 1;
+        if (orderCount == order.length) {
+            order = Arrays.copyOf(order, orderCount * 2);
+        }
+        System.arraycopy(order, at, order, at + 1, orderCount - at);
+        order[at] = id;
+        orderCount++;
+    }
+
+    private void write(int slot, String title, String description, boolean done) {
+        write(slot,
+                title == null ? null : title.getBytes(StandardCharsets.UTF_8),
+                description == null ? null : description.getBytes(StandardCharsets.UTF_8),
+                done);
+    }
+
+    private void write(int slot, byte[] title, byte[] description, boolean done) {
+        textOffsets[slot] = arena.append(title == null ? NO_BYTES : title, description == null ? NO_BYTES : description);
+        titleLengths[slot] = title == null ? NULL_LENGTH : title.length;
+        descriptionLengths[slot] = description == null ? NULL_LENGTH : description.length;
+        completed[slot] = done;
+    }
+
+    private void release(int slot) {
+        arena.release(Math.max(0, titleLengths[slot]) + Math.max(0, descriptionLengths[slot]));
+    }
+
+    private Todo read(int slot) {
+        int titleLength = titleLengths[slot];
+        int descriptionLength = descriptionLengths[slot];
+        int offset = textOffsets[slot];
+        return Todo.builder()
+                .id(ids[slot])
+                .title(titleLength == NULL_LENGTH ? null : decode(offset, titleLength))
+                .description(descriptionLength == NULL_LENGTH ? null : decode(offset + Math.max(0, titleLength), descriptionLength))
+                .completed(completed[slot])
+                .version(versions[slot])
+                .build();
+    }
+
+    private String decode(int offset, int length) {
+        return length == 0 ? "" : new String(arena.read(offset, length), StandardCharsets.UTF_8);
+    }
+
+    private boolean titleStartsWith(int slot, byte[] prefix) {
+        // A string prefix is also a UTF-8 byte prefix, so the title never needs decoding here
+        return titleLengths[slot] != NULL_LENGTH && arena.startsWith(textOffsets[slot], titleLengths[slot], prefix);
+    }
+
+    private void compactIfNeeded() {
+        if (arena.needsCompaction()) {
+            OffHeapArena compacted = new OffHeapArena(arena.used());
+            for (int i = 0; i < orderCount; i++) {
+                int slot = slotsById.get(order[i]);
+                if (slot != LongIntHashMap.MISSING) {
+                    int length = Math.max(0, titleLengths[slot]) + Math.max(0, descriptionLengths[slot]);
+                    textOffsets[slot] = compacted.append(arena.read(textOffsets[slot], length), NO_BYTES);
+                }
+            }
+            arena = compacted;
+        }
+        if (orderCount > INITIAL_SLOTS && slotsById.size() * 2 < orderCount) {
+            int live = 0;
+            for (int i = 0; i < orderCount; i++) {
+                if (slotsById.get(order[i]) != LongIntHashMap.MISSING) {
+                    order[live++] = order[i];
+                }
+            }
+            orderCount = live;
+        }
+    }
+
+    private static Comparator<Todo> comparator(Sort sort) {
+        Comparator<Todo> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Todo> next;
+            switch (order.getProperty()) {
+                case "id":
+                    next = Comparator.comparing(Todo::getId);
+                    break;
+                case "title":
+                    // Nulls first, as H2 sorts them in ascending order
+                    next = Comparator.comparing(Todo::getTitle, Comparator.nullsFirst(Comparator.naturalOrder()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Cannot sort todos by '" + order.getProperty() + "'");
+            }
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator != null ? comparator : Comparator.comparing(Todo::getId);
+    }
+}
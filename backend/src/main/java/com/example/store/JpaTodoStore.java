@@ -0,0 +1,125 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+import com.example.repository.TodoRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link TodoStore} on Spring Data JPA, i.e. whatever database the datasource points at.
+ */
+public class JpaTodoStore implements TodoStore {
+
+    private final TodoRepository todoRepository;
+
+    public JpaTodoStore(TodoRepository todoRepository) {
+        this.todoRepository = todoRepository;
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return todoRepository.findAll();
+    }
+
+    @Override
+    public List<Todo> findAfter(long afterId, int limit) {
+        return todoRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public Optional<Todo> findById(long id) {
+        return todoRepository.findById(id);
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> ids) {
+        return todoRepository.findAllById(ids);
+    }
+
+    @Override
+    public List<Todo> list(Boolean completed, String titlePrefix, Sort sort, int limit) {
+        // Pageable carries the sort and row limit so only the needed rows are read
+        Pageable pageable = PageRequest.of(0, limit, sort);
+        boolean byPrefix = titlePrefix != null && !titlePrefix.isEmpty();
+        if (completed != null) {
+            return byPrefix
+                    ? todoRepository.findByCompletedAndTitleStartingWith(completed, titlePrefix, pageable)
+                    : todoRepository.findByCompleted(completed, pageable);
+        }
+        return byPrefix
+                ? todoRepository.findByTitleStartingWith(titlePrefix, pageable)
+                : todoRepository.findAllBy(pageable);
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return todoRepository.existsById(id);
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        return todoRepository.save(todo);
+    }
+
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        return todoRepository.saveAll(todos);
+    }
+
+    @Override
+    public List<Todo> importAll(List<Todo> todos) {
+        List<Todo> saved = todoRepository.saveAll(todos);
+        // Push the batched inserts out and drop the managed copies so a long import doesn't grow the session
+        todoRepository.flush();
+        todoRepository.clearPersistenceContext();
+        return saved;
+    }
+
+    /**
+     * Must run in a transaction: the UPDATE keeps the row locked until commit, so the read that
+     * follows it sees this update and not another writer's.
+     */
+    @Override
+    public Optional<Todo> updateFields(long id, Map<String, Object> values, Long expectedVersion) {
+        if (todoRepository.updateFields(id, values, expectedVersion) == 0) {
+            return Optional.empty();
+        }
+        return todoRepository.findById(id);
+    }
+
+    @Override
+    public int deleteById(long id) {
+        return todoRepository.deleteTodoById(id);
+    }
+
+    /**
+     * Must run in a transaction: the lookup locks the rows it finds, so exactly those are deleted.
+     */
+    @Override
+    public List<Long> deleteAllById(Collection<Long> ids) {
+        List<Long> existing = todoRepository.findIdsByIdIn(ids);
+        if (!existing.isEmpty()) {
+            todoRepository.deleteByIdIn(existing);
+        }
+        return existing;
+    }
+
+    /**
+     * Must run in a transaction: the id lookup locks the rows so they still match when the bulk
+     * delete runs.
+     */
+    @Override
+    public List<Long> deleteByCompleted(boolean completed) {
+        List<Long> ids = todoRepository.findIdsByCompleted(completed);
+        if (!ids.isEmpty()) {
+            todoRepository.deleteByCompleted(completed);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.store;
+
+/**
+ * Open-addressing hash map from positive {@code long} keys to non-negative {@code int} values,
+ * without boxing either. Linear probing over a power-of-two table; removal shifts the following
+ * entries back instead of leaving tombstones, so lookups never degrade after heavy churn.
+ *
+ * <p>Not thread-safe.
+ */
+final class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    // 0 marks an empty bucket, which is why keys must be positive
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key) {
+        if (key <= 0) {
+            // Would otherwise match an empty bucket
+            return MISSING;
+        }
+        for (int i = bucket(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            if (keys[i] == 0) {
+                return MISSING;
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+        int i = bucket(key);
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == 0) {
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+        // Keep the load factor at or below 1/2 so probe runs stay short
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    int remove(long key) {
+        if (key <= 0) {
+            return MISSING;
+        }
+        int i = bucket(key);
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                return MISSING;
+            }
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        size--;
+
+        // Shift back any entry in the run after i that would otherwise become unreachable
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = bucket(keys[j]);
+            // j's entry may move into the hole only if its home bucket is not inside (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0;
+        return removed;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private int bucket(long key) {
+        // Fibonacci hashing: the top bits of the product spread sequential ids across the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
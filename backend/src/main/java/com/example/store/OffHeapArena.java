@@ -0,0 +1,90 @@
+package com.example.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Append-only byte storage in a direct buffer, outside the Java heap, so payload bytes add neither
+ * objects nor GC marking work. Space given up by updated or deleted records is only counted; the
+ * owner reclaims it by copying the live records into a fresh arena once
+ * {@link #needsCompaction()} says enough of it is garbage.
+ *
+ * <p>Not thread-safe.
+ */
+final class OffHeapArena {
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final int MIN_COMPACTION_GARBAGE = 1 << 20;
+
+    private ByteBuffer buffer;
+    private int used;
+    private long garbage;
+
+    OffHeapArena(int initialCapacity) {
+        buffer = ByteBuffer.allocateDirect(Math.max(64, initialCapacity));
+    }
+
+    int used() {
+        return used;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Stores {@code first} followed by {@code second} and returns the offset of the first byte.
+     */
+    int append(byte[] first, byte[] second) {
+        int offset = used;
+        ensureCapacity((long) used + first.length + second.length);
+        ByteBuffer target = buffer.duplicate();
+        target.position(used);
+        target.put(first).put(second);
+        used = target.position();
+        return offset;
+    }
+
+    byte[] read(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+        return bytes;
+    }
+
+    boolean startsWith(int offset, int length, byte[] prefix) {
+        if (prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void release(int length) {
+        garbage += length;
+    }
+
+    boolean needsCompaction() {
+        return garbage >= MIN_COMPACTION_GARBAGE && garbage * 2 > used;
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > MAX_CAPACITY) {
+            throw new IllegalStateException("Off-heap arena cannot grow beyond " + MAX_CAPACITY + " bytes");
+        }
+        int capacity = (int) Math.min(MAX_CAPACITY, Math.max(required, (long) buffer.capacity() * 2));
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        ByteBuffer live = buffer.duplicate();
+        live.position(0).limit(used);
+        grown.put(live);
+        // The old buffer's native memory is freed once it is garbage collected
+        buffer = grown;
+    }
+}
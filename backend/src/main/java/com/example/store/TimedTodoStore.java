@@ -0,0 +1,173 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Sort;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Records every store call as {@code todo.store.calls}, tagged by operation and by the exception
+ * it failed with ("None" on success), and publishes the calls in progress per operation as
+ * {@code todo.store.calls.active}. The success timers are registered up front, so the hot path is
+ * a clock read and a histogram update.
+ */
+public class TimedTodoStore implements TodoStore, Closeable {
+
+    static final String CALLS = "todo.store.calls";
+
+    private final TodoStore delegate;
+    private final MeterRegistry meterRegistry;
+
+    private final Operation findAll;
+    private final Operation findAfter;
+    private final Operation findById;
+    private final Operation findAllById;
+    private final Operation list;
+    private final Operation existsById;
+    private final Operation save;
+    private final Operation saveAll;
+    private final Operation importAll;
+    private final Operation updateFields;
+    private final Operation deleteById;
+    private final Operation deleteAllById;
+    private final Operation deleteByCompleted;
+
+    public TimedTodoStore(TodoStore delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.findAll = new Operation("findAll");
+        this.findAfter = new Operation("findAfter");
+        this.findById = new Operation("findById");
+        this.findAllById = new Operation("findAllById");
+        this.list = new Operation("list");
+        this.existsById = new Operation("existsById");
+        this.save = new Operation("save");
+        this.saveAll = new Operation("saveAll");
+        this.importAll = new Operation("importAll");
+        this.updateFields = new Operation("updateFields");
+        this.deleteById = new Operation("deleteById");
+        this.deleteAllById = new Operation("deleteAllById");
+        this.deleteByCompleted = new Operation("deleteByCompleted");
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return findAll.record(delegate::findAll);
+    }
+
+    @Override
+    public List<Todo> findAfter(long afterId, int limit) {
+        return findAfter.record(() -> delegate.findAfter(afterId, limit));
+    }
+
+    @Override
+    public Optional<Todo> findById(long id) {
+        return findById.record(() -> delegate.findById(id));
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> ids) {
+        return findAllById.record(() -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public List<Todo> list(Boolean completed, String titlePrefix, Sort sort, int limit) {
+        return list.record(() -> delegate.list(completed, titlePrefix, sort, limit));
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return existsById.record(() -> delegate.existsById(id));
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        return save.record(() -> delegate.save(todo));
+    }
+
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        return saveAll.record(() -> delegate.saveAll(todos));
+    }
+
+    @Override
+    public List<Todo> importAll(List<Todo> todos) {
+        return importAll.record(() -> delegate.importAll(todos));
+    }
+
+    @Override
+    public Optional<Todo> updateFields(long id, Map<String, Object> values, Long expectedVersion) {
+        return updateFields.record(() -> delegate.updateFields(id, values, expectedVersion));
+    }
+
+    @Override
+    public int deleteById(long id) {
+        return deleteById.record(() -> delegate.deleteById(id));
+    }
+
+    @Override
+    public List<Long> deleteAllById(Collection<Long> ids) {
+        return deleteAllById.record(() -> delegate.deleteAllById(ids));
+    }
+
+    @Override
+    public List<Long> deleteByCompleted(boolean completed) {
+        return deleteByCompleted.record(() -> delegate.deleteByCompleted(completed));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    private final class Operation {
+
+        private final String name;
+        private final Timer succeeded;
+        private final AtomicInteger active = new AtomicInteger();
+
+        Operation(String name) {
+            this.name = name;
+            this.succeeded = timer("None");
+            Gauge.builder(CALLS + ".active", active, AtomicInteger::get)
+                    .tag("operation", name)
+                    .register(meterRegistry);
+        }
+
+        <T> T record(Supplier<T> call) {
+            long start = System.nanoTime();
+            active.incrementAndGet();
+            try {
+                T result = call.get();
+                succeeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (RuntimeException e) {
+                // Failures are rare enough to look their timer up each time
+                timer(e.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        private Timer timer(String exception) {
+            return Timer.builder(CALLS)
+                    .tag("operation", name)
+                    .tag("exception", exception)
+                    .register(meterRegistry);
+        }
+    }
+}
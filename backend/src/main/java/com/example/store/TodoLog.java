@@ -0,0 +1,167 @@
+package com.example.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One segment of the write-ahead log behind {@link DurableTodoStore}.
+ *
+ * <p>Each entry is framed as {@code [int payload length][int CRC32C of payload][payload]}. The
+ * payload holds a todo's complete state after a write or the id of a deleted todo, so an entry
+ * means the same thing however often it is applied. A crash can leave a torn entry at the end of
+ * the last segment; {@link #replay} stops in front of it.
+ *
+ * <p>{@link #append} is single-writer (the store serializes writes); {@link #sync} may be called
+ * from any thread, and callers that arrive while a force is running share the next one.
+ */
+final class TodoLog implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    private static final int HEADER_SIZE = 8;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Object syncLock = new Object();
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    private volatile long written;
+    private long synced;
+
+    private TodoLog(Path path, FileChannel channel, long written) {
+        this.path = path;
+        this.channel = channel;
+        this.written = written;
+        this.synced = written;
+    }
+
+    static TodoLog create(Path path) throws IOException {
+        return new TodoLog(path, FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 0);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long size() {
+        return written;
+    }
+
+    void appendPut(long id, long version, boolean completed, byte[] title, byte[] description) throws IOException {
+        ByteBuffer entry = reserve(1 + TodoRecords.size(title, description));
+        entry.put(PUT);
+        TodoRecords.put(entry, id, version, completed, title, description);
+        write(entry);
+    }
+
+    void appendDelete(long id) throws IOException {
+        ByteBuffer entry = reserve(1 + Long.BYTES);
+        entry.put(DELETE);
+        entry.putLong(id);
+        write(entry);
+    }
+
+    /**
+     * Returns once every entry appended before this call is on disk.
+     */
+    void sync() throws IOException {
+        sync(written);
+    }
+
+    void sync(long position) throws IOException {
+        synchronized (syncLock) {
+            if (synced >= position) {
+                // Somebody else's force already covered this position
+                return;
+            }
+            long end = written;
+            channel.force(false);
+            synced = end;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Under the sync lock so a concurrent sync() sees either an open channel or everything synced
+        synchronized (syncLock) {
+            try {
+                channel.force(false);
+                synced = written;
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private ByteBuffer reserve(int payloadSize) {
+        if (buffer.capacity() < HEADER_SIZE + payloadSize) {
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(HEADER_SIZE + payloadSize) << 1);
+        }
+        buffer.clear();
+        buffer.position(HEADER_SIZE);
+        return buffer;
+    }
+
+    private void write(ByteBuffer entry) throws IOException {
+        int end = entry.position();
+        CRC32C crc = new CRC32C();
+        crc.update(entry.array(), HEADER_SIZE, end - HEADER_SIZE);
+        entry.putInt(0, end - HEADER_SIZE);
+        entry.putInt(4, (int) crc.getValue());
+        entry.flip();
+        while (entry.hasRemaining()) {
+            channel.write(entry);
+        }
+        written += end;
+    }
+
+    /**
+     * Applies every intact entry of the segment in order and returns the length of the intact
+     * prefix; anything after it is a torn or corrupt tail.
+     */
+    static long replay(Path path, TodoRecords.Handler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Log segment " + path + " is larger than 2 GB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32C crc = new CRC32C();
+            while (mapped.remaining() >= HEADER_SIZE) {
+                int start = mapped.position();
+                int length = mapped.getInt();
+                int checksum = mapped.getInt();
+                if (length <= 0 || length > mapped.remaining()) {
+                    return start;
+                }
+                ByteBuffer payload = mapped.slice();
+                payload.limit(length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return start;
+                }
+                try {
+                    byte type = payload.get();
+                    if (type == PUT) {
+                        TodoRecords.read(payload, handler);
+                    } else if (type == DELETE) {
+                        handler.delete(payload.getLong());
+                    } else {
+                        return start;
+                    }
+                } catch (BufferUnderflowException e) {
+                    return start;
+                }
+                mapped.position(start + HEADER_SIZE + length);
+            }
+            return mapped.position();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.store;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary layout of a todo in the log and in snapshots:
+ * {@code id, version (longs), completed (byte), title, description}, where each string is an int
+ * byte count (-1 for null) followed by its UTF-8 bytes.
+ */
+final class TodoRecords {
+
+    interface Handler {
+
+        void put(long id, long version, boolean completed, byte[] title, byte[] description);
+
+        void delete(long id);
+    }
+
+    private TodoRecords() {
+    }
+
+    static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int size(byte[] title, byte[] description) {
+        return 2 * Long.BYTES + 1 + 2 * Integer.BYTES
+                + (title == null ? 0 : title.length)
+                + (description == null ? 0 : description.length);
+    }
+
+    static void put(ByteBuffer buffer, long id, long version, boolean completed, byte[] title, byte[] description) {
+        buffer.putLong(id);
+        buffer.putLong(version);
+        buffer.put((byte) (completed ? 1 : 0));
+        putBytes(buffer, title);
+        putBytes(buffer, description);
+    }
+
+    static void read(ByteBuffer buffer, Handler handler) {
+        long id = buffer.getLong();
+        long version = buffer.getLong();
+        boolean completed = buffer.get() != 0;
+        byte[] title = getBytes(buffer);
+        byte[] description = getBytes(buffer);
+        handler.put(id, version, completed, title, description);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+}
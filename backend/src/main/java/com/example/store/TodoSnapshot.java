@@ -0,0 +1,150 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Point-in-time image of a store, written next to the log so recovery only has to replay the log
+ * written since.
+ *
+ * <p>Layout: {@code [int magic][int format][long next id]}, then each todo as a 1 byte followed by
+ * its {@link TodoRecords} form, a 0 byte, and a CRC32C of everything before it. The file is written
+ * under a temporary name and renamed into place, so a snapshot that exists is complete; loading
+ * maps it read-only and feeds the records straight into an {@link InMemoryTodoStore}.
+ */
+final class TodoSnapshot {
+
+    private static final int MAGIC = 0x54444F53;
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int READ_CHUNK_SIZE = 1000;
+
+    private TodoSnapshot() {
+    }
+
+    /**
+     * Writes every todo in {@code source} to {@code target}. Writes to the store while this runs may
+     * or may not be included; the log entries for them make the result right either way.
+     *
+     * @return the number of todos written
+     */
+    static long write(Path target, long nextId, TodoStore source) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long count = 0;
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(FORMAT).putLong(nextId);
+
+            long afterId = 0;
+            List<Todo> chunk;
+            do {
+                chunk = source.findAfter(afterId, READ_CHUNK_SIZE);
+                for (Todo todo : chunk) {
+                    byte[] title = TodoRecords.utf8(todo.getTitle());
+                    byte[] description = TodoRecords.utf8(todo.getDescription());
+                    int size = 1 + TodoRecords.size(title, description);
+                    if (buffer.remaining() < size) {
+                        flush(channel, buffer, crc);
+                        if (buffer.capacity() < size) {
+                            buffer = ByteBuffer.allocate(size);
+                        }
+                    }
+                    buffer.put((byte) 1);
+                    TodoRecords.put(buffer, todo.getId(), todo.getVersion(), todo.isCompleted(), title, description);
+                    afterId = todo.getId();
+                    count++;
+                }
+            } while (chunk.size() == READ_CHUNK_SIZE);
+
+            if (buffer.remaining() < 1 + Integer.BYTES) {
+                flush(channel, buffer, crc);
+            }
+            buffer.put((byte) 0);
+            crc.update(buffer.array(), 0, buffer.position());
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    /**
+     * Loads the snapshot into an empty store.
+     *
+     * @return the number of todos loaded
+     * @throws IOException if the file is not an intact snapshot
+     */
+    static long load(Path path, InMemoryTodoStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + path + " is larger than 2 GB");
+            }
+            if (size < HEADER_SIZE + 1 + Integer.BYTES) {
+                throw new IOException("Snapshot " + path + " is truncated");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer body = mapped.duplicate();
+            body.limit((int) size - Integer.BYTES);
+            CRC32C crc = new CRC32C();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != mapped.getInt((int) size - Integer.BYTES)) {
+                throw new IOException("Snapshot " + path + " fails its checksum");
+            }
+            if (body.getInt() != MAGIC || body.getInt() != FORMAT) {
+                throw new IOException("Snapshot " + path + " has an unknown format");
+            }
+            long nextId = body.getLong();
+
+            long[] count = new long[1];
+            TodoRecords.Handler loader = new TodoRecords.Handler() {
+                @Override
+                public void put(long id, long version, boolean completed, byte[] title, byte[] description) {
+                    store.restore(id, version, completed, title, description);
+                    count[0]++;
+                }
+
+                @Override
+                public void delete(long id) {
+                    throw new IllegalStateException("Snapshots hold no deletions");
+                }
+            };
+            try {
+                while (body.get() == 1) {
+                    TodoRecords.read(body, loader);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Snapshot " + path + " is malformed", e);
+            }
+            store.advanceNextId(nextId);
+            return count[0];
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32C crc) throws IOException {
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage engine behind {@link com.example.service.TodoService}. Implementations assign ids on
+ * insert (ascending, so keyset reads by id see new todos last) and maintain {@link Todo#getVersion()}:
+ * writing a todo whose version is no longer current fails with
+ * {@link org.springframework.dao.OptimisticLockingFailureException}.
+ */
+public interface TodoStore {
+
+    List<Todo> findAll();
+
+    /**
+     * Returns up to {@code limit} todos with an id greater than {@code afterId}, ordered by id.
+     */
+    List<Todo> findAfter(long afterId, int limit);
+
+    Optional<Todo> findById(long id);
+
+    List<Todo> findAllById(Collection<Long> ids);
+
+    /**
+     * @param completed   null for both completed and pending todos
+     * @param titlePrefix null or empty to match every title
+     * @param sort        orders on "id" and/or "title"
+     */
+    List<Todo> list(Boolean completed, String titlePrefix, Sort sort, int limit);
+
+    boolean existsById(long id);
+
+    /**
+     * Inserts the todo if it has no id, otherwise updates it. Returns the stored state.
+     */
+    Todo save(Todo todo);
+
+    List<Todo> saveAll(List<Todo> todos);
+
+    /**
+     * Inserts a chunk of a bulk import; unlike {@link #saveAll} it may drop any per-call state the
+     * engine keeps for the inserted rows.
+     */
+    List<Todo> importAll(List<Todo> todos);
+
+    /**
+     * Sets the given fields ("title", "description", "completed") and bumps the version, only if
+     * the todo is still at {@code expectedVersion} when that is not null.
+     *
+     * @return the todo as this update left it, or empty if nothing was updated
+     */
+    Optional<Todo> updateFields(long id, Map<String, Object> values, Long expectedVersion);
+
+    /**
+     * @return the number of todos deleted
+     */
+    int deleteById(long id);
+
+    /**
+     * @return the ids of the todos deleted, leaving out any that did not exist
+     */
+    List<Long> deleteAllById(Collection<Long> ids);
+
+    /**
+     * Deletes every todo whose completed flag matches, as one operation.
+     *
+     * @return the ids of the todos deleted
+     */
+    List<Long> deleteByCompleted(boolean completed);
+}
@@ -0,0 +1,142 @@
+package com.example.config;
+
+import com.example.grpc.todo.GetAllTodosRequest;
+import com.example.grpc.todo.GetAllTodosResponse;
+import com.example.grpc.todo.GetTodoRequest;
+import com.example.grpc.todo.Todo;
+import com.example.grpc.todo.TodoServiceGrpc;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GrpcClientConfigTest {
+
+    private final GrpcClientConfig config = new GrpcClientConfig();
+
+    @Test
+    void testInProcessChannelPassesMessagesWithoutReserializing() throws Exception {
+        // given
+        Todo todo = Todo.newBuilder().setId(1L).setTitle("Todo 1").setDescription("Description 1").build();
+        String serverName = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(new TodoServiceGrpc.TodoServiceImplBase() {
+                    @Override
+                    public void getTodo(GetTodoRequest request, StreamObserver<Todo> responseObserver) {
+                        responseObserver.onNext(todo);
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+        GrpcClientProperties properties = properties(GrpcClientConfig.TRANSPORT_IN_PROCESS);
+        ManagedChannel channel = config.todoChannel(properties, serverName);
+
+        try {
+            // when
+            Todo received = config.todoServiceBlockingStub(channel, properties)
+                    .getTodo(GetTodoRequest.newBuilder().setId(1L).build());
+
+            // then
+            assertThat(received).isSameAs(todo);
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStubsSendPerMethodDeadlines() throws Exception {
+        // given
+        List<Deadline> seen = new CopyOnWriteArrayList<>();
+        String serverName = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(new TodoServiceGrpc.TodoServiceImplBase() {
+                    @Override
+                    public void getTodo(GetTodoRequest request, StreamObserver<Todo> responseObserver) {
+                        seen.add(Context.current().getDeadline());
+                        responseObserver.onNext(Todo.getDefaultInstance());
+                        responseObserver.onCompleted();
+                    }
+
+                    @Override
+                    public void getAllTodos(GetAllTodosRequest request, StreamObserver<GetAllTodosResponse> responseObserver) {
+                        seen.add(Context.current().getDeadline());
+                        responseObserver.onNext(GetAllTodosResponse.getDefaultInstance());
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+        GrpcClientProperties properties = properties(GrpcClientConfig.TRANSPORT_IN_PROCESS);
+        properties.setDeadline(Duration.ofSeconds(2));
+        properties.setDeadlines(Collections.singletonMap("GetAllTodos", Duration.ofMinutes(5)));
+        ManagedChannel channel = config.todoChannel(properties, serverName);
+
+        try {
+            // when
+            TodoServiceGrpc.TodoServiceBlockingStub stub = config.todoServiceBlockingStub(channel, properties);
+            stub.getTodo(GetTodoRequest.newBuilder().setId(1L).build());
+            stub.getAllTodos(GetAllTodosRequest.getDefaultInstance());
+
+            // then
+            assertThat(seen.get(0).timeRemaining(TimeUnit.SECONDS)).isBetween(0L, 2L);
+            assertThat(seen.get(1).timeRemaining(TimeUnit.SECONDS)).isBetween(60L, 300L);
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInProcessChannelRequiresServerName() {
+        assertThatThrownBy(() -> config.todoChannel(properties(GrpcClientConfig.TRANSPORT_IN_PROCESS), ""))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("grpc.server.in-process-name");
+    }
+
+    @Test
+    void testUnknownTransportIsRejected() {
+        assertThatThrownBy(() -> config.todoChannel(properties("carrier-pigeon"), ""))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testNettyTransportBuildsConfiguredPool() throws Exception {
+        // given
+        GrpcClientProperties properties = properties(GrpcClientConfig.TRANSPORT_NETTY);
+        properties.setPoolSize(3);
+
+        // when
+        PooledManagedChannel channel = config.todoChannel(properties, "");
+
+        // then
+        try {
+            assertThat(channel.size()).isEqualTo(3);
+            assertThat(channel.authority()).isEqualTo("localhost:9090");
+        } finally {
+            channel.close();
+        }
+        assertThat(channel.isShutdown()).isTrue();
+    }
+
+    private static GrpcClientProperties properties(String transport) {
+        GrpcClientProperties properties = new GrpcClientProperties();
+        properties.setTransport(transport);
+        return properties;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GrpcServerConfigTest {
+
+    @Test
+    void testDefaultKeepsGrpcExecutor() {
+        // when
+        ExecutorService executor = GrpcServerConfig.createExecutor(properties(GrpcServerConfig.EXECUTOR_DEFAULT, 0));
+
+        // then
+        assertThat(executor).isNull();
+    }
+
+    @Test
+    void testFixedPool() {
+        // when
+        ExecutorService executor = GrpcServerConfig.createExecutor(properties(GrpcServerConfig.EXECUTOR_FIXED, 3));
+
+        // then
+        try {
+            assertThat(executor).isInstanceOfSatisfying(ThreadPoolExecutor.class,
+                    pool -> assertThat(pool.getMaximumPoolSize()).isEqualTo(3));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testWorkStealingPool() {
+        // when
+        ExecutorService executor = GrpcServerConfig.createExecutor(properties(GrpcServerConfig.EXECUTOR_WORK_STEALING, 2));
+
+        // then
+        try {
+            assertThat(executor).isInstanceOfSatisfying(ForkJoinPool.class,
+                    pool -> assertThat(pool.getParallelism()).isEqualTo(2));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testVirtualThreadsNeedJava21() throws Exception {
+        // given
+        GrpcServerProperties properties = properties(GrpcServerConfig.EXECUTOR_VIRTUAL, 0);
+
+        if (Runtime.version().feature() < 21) {
+            // when / then
+            assertThatThrownBy(() -> GrpcServerConfig.createExecutor(properties))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Java 21");
+            return;
+        }
+
+        // when
+        ExecutorService executor = GrpcServerConfig.createExecutor(properties);
+
+        // then
+        try {
+            boolean[] virtual = new boolean[1];
+            executor.submit(() -> virtual[0] = Thread.currentThread().toString().startsWith("VirtualThread")).get(5, TimeUnit.SECONDS);
+            assertThat(virtual[0]).isTrue();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testUnknownExecutorIsRejected() {
+        assertThatThrownBy(() -> GrpcServerConfig.createExecutor(properties("elastic", 0)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("elastic");
+    }
+
+    private static GrpcServerProperties properties(String executor, int threads) {
+        GrpcServerProperties properties = new GrpcServerProperties();
+        properties.setExecutor(executor);
+        properties.setThreads(threads);
+        return properties;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.config;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PooledManagedChannelTest {
+
+    @Mock
+    private ManagedChannel first;
+
+    @Mock
+    private ManagedChannel second;
+
+    @Mock
+    private MethodDescriptor<Object, Object> method;
+
+    @Test
+    void testCallsAreSpreadRoundRobin() {
+        // given
+        PooledManagedChannel pool = new PooledManagedChannel(Arrays.asList(first, second), Duration.ofSeconds(1));
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            pool.newCall(method, CallOptions.DEFAULT);
+        }
+
+        // then
+        verify(first, times(2)).newCall(method, CallOptions.DEFAULT);
+        verify(second, times(2)).newCall(method, CallOptions.DEFAULT);
+    }
+
+    @Test
+    void testCloseWaitsForInFlightCallsBeforeForcing() throws Exception {
+        // given
+        PooledManagedChannel pool = new PooledManagedChannel(Arrays.asList(first, second), Duration.ofSeconds(1));
+        when(first.awaitTermination(anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
+        when(second.awaitTermination(anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(false);
+
+        // when
+        pool.close();
+
+        // then
+        verify(first).shutdown();
+        verify(second).shutdown();
+        verify(first).shutdownNow();
+        verify(second).shutdownNow();
+    }
+
+    @Test
+    void testCloseDoesNotForceWhenTerminatedInTime() throws Exception {
+        // given
+        PooledManagedChannel pool = new PooledManagedChannel(Arrays.asList(first, second), Duration.ofSeconds(1));
+        when(first.awaitTermination(anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
+        when(second.awaitTermination(anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
+
+        // when
+        pool.close();
+
+        // then
+        verify(first, never()).shutdownNow();
+        verify(second, never()).shutdownNow();
+        assertThat(pool.size()).isEqualTo(2);
+    }
+}
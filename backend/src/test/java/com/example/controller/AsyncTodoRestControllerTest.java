@@ -0,0 +1,160 @@
+package com.example.controller;
+
+import com.example.entity.Todo;
+import com.example.grpc.todo.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.Futures;
+import io.grpc.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AsyncTodoRestControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private TodoServiceGrpc.TodoServiceFutureStub todoServiceStub;
+
+    @Mock
+    private TodoServiceGrpc.TodoServiceBlockingStub todoServiceBlockingStub;
+
+    @InjectMocks
+    private AsyncTodoRestController todoRestController;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(todoRestController)
+                .setMessageConverters(new TodoJsonHttpMessageConverter(), new MappingJackson2HttpMessageConverter())
+                .build();
+    }
+
+    @Test
+    void testGetAllTodos() throws Exception {
+        // Mock gRPC response
+        com.example.grpc.todo.Todo grpcTodo = com.example.grpc.todo.Todo.newBuilder()
+                .setId(1L)
+                .setTitle("Test Todo 1")
+                .setDescription("Description 1")
+                .setCompleted(false)
+                .build();
+
+        when(todoServiceStub.getAllTodos(GetAllTodosRequest.newBuilder().setVersionOnly(true).build()))
+                .thenReturn(Futures.immediateFuture(GetAllTodosResponse.newBuilder().setVersion(3L).build()));
+        when(todoServiceBlockingStub.streamTodos(any(StreamTodosRequest.class)))
+                .thenReturn(Collections.singletonList(grpcTodo).iterator());
+
+        MvcResult result = mockMvc.perform(get("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Test Todo 1"));
+    }
+
+    @Test
+    void testGetTodoById_NotFound() throws Exception {
+        when(todoServiceStub.getTodo(any(GetTodoRequest.class)))
+                .thenReturn(Futures.immediateFailedFuture(Status.NOT_FOUND.asRuntimeException()));
+
+        MvcResult result = mockMvc.perform(get("/api/todos/1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testCreateTodo() throws Exception {
+        // Prepare request
+        Todo todo = Todo.builder()
+                .title("New Todo")
+                .description("New Description")
+                .completed(false)
+                .build();
+
+        // Mock gRPC response
+        com.example.grpc.todo.Todo grpcTodo = com.example.grpc.todo.Todo.newBuilder()
+                .setId(1L)
+                .setTitle("New Todo")
+                .setDescription("New Description")
+                .setCompleted(false)
+                .build();
+
+        when(todoServiceStub.createTodo(any(CreateTodoRequest.class)))
+                .thenReturn(Futures.immediateFuture(grpcTodo));
+
+        MvcResult result = mockMvc.perform(post("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(todo)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.title").value("New Todo"));
+    }
+
+    @Test
+    void testUpdateTodo_IdMismatch() throws Exception {
+        Todo todo = Todo.builder()
+                .id(2L)
+                .title("Updated Todo")
+                .description("Updated Description")
+                .completed(true)
+                .build();
+
+        MvcResult result = mockMvc.perform(put("/api/todos/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(todo)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testDeleteTodo() throws Exception {
+        DeleteTodoResponse grpcResponse = DeleteTodoResponse.newBuilder()
+                .setSuccess(true)
+                .build();
+
+        when(todoServiceStub.deleteTodo(any(DeleteTodoRequest.class)))
+                .thenReturn(Futures.immediateFuture(grpcResponse));
+
+        MvcResult result = mockMvc.perform(delete("/api/todos/1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.controller;
+
+import com.example.entity.Todo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TodoJsonHttpMessageConverterTest {
+
+    private final TodoJsonHttpMessageConverter converter = new TodoJsonHttpMessageConverter();
+
+    @Test
+    void testWritesSameJsonAsEntity() throws Exception {
+        // given
+        List<com.example.grpc.todo.Todo> grpcTodos = Arrays.asList(
+                com.example.grpc.todo.Todo.newBuilder()
+                        .setId(1L).setTitle("Todo \"1\"").setDescription("Ünïcode\n").setCompleted(true).setVersion(4L).build(),
+                com.example.grpc.todo.Todo.newBuilder()
+                        .setId(2L).setTitle("Todo 2").build());
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        // when
+        converter.write(grpcTodos, listType(), MediaType.APPLICATION_JSON, outputMessage);
+
+        // then
+        List<Todo> entities = Arrays.asList(
+                TodoRestMapper.mapToEntityTodo(grpcTodos.get(0)), TodoRestMapper.mapToEntityTodo(grpcTodos.get(1)));
+        assertThat(outputMessage.getBodyAsString()).isEqualTo(new ObjectMapper().writeValueAsString(entities));
+    }
+
+    @Test
+    void testLeavesListUnterminatedWhenTodosFail() {
+        // given
+        Iterator<com.example.grpc.todo.Todo> todos = new Iterator<com.example.grpc.todo.Todo>() {
+            private int remaining = 2;
+
+            @Override
+            public boolean hasNext() {
+                if (remaining == 0) {
+                    throw Status.UNAVAILABLE.asRuntimeException();
+                }
+                return true;
+            }
+
+            @Override
+            public com.example.grpc.todo.Todo next() {
+                return com.example.grpc.todo.Todo.newBuilder().setId(remaining--).build();
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        Throwable error = catchThrowable(() -> TodoJsonHttpMessageConverter.writeJson(todos, out));
+
+        // then
+        assertThat(Status.fromThrowable(error).getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .startsWith("[{\"id\":2,")
+                .endsWith("\"version\":0}");
+    }
+
+    @Test
+    void testOnlyWritesTodoLists() {
+        assertThat(converter.canWrite(listType(), List.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(new ParameterizedTypeReference<List<Todo>>() { }.getType(), List.class,
+                MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(List.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canRead(listType(), null, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    void testClosesClosableBody() throws Exception {
+        // given
+        AtomicBoolean closed = new AtomicBoolean();
+        ClosableTodos todos = new ClosableTodos(closed);
+
+        // when
+        converter.write(todos, ClosableTodos.class, MediaType.APPLICATION_JSON, new MockHttpOutputMessage());
+
+        // then
+        assertThat(closed).isTrue();
+    }
+
+    private static java.lang.reflect.Type listType() {
+        return new ParameterizedTypeReference<List<com.example.grpc.todo.Todo>>() { }.getType();
+    }
+
+    private static final class ClosableTodos implements Iterable<com.example.grpc.todo.Todo>, Closeable {
+
+        private final AtomicBoolean closed;
+
+        ClosableTodos(AtomicBoolean closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public Iterator<com.example.grpc.todo.Todo> iterator() {
+            return Arrays.asList(com.example.grpc.todo.Todo.newBuilder().setId(1L).build()).iterator();
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.example.controller;
 import com.example.entity.Todo;
 import com.example.grpc.todo.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.FieldMask;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,12 +13,19 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.Arrays;
+import java.util.Iterator;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,7 +45,10 @@ public class TodoRestControllerTest {
 
     @BeforeEach
     void setUp() {
-        mockMvc = MockMvcBuilders.standaloneSetup(todoRestController).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(todoRestController)
+                .setControllerAdvice(new TodoRestExceptionHandler())
+                .setMessageConverters(new TodoJsonHttpMessageConverter(), new MappingJackson2HttpMessageConverter())
+                .build();
     }
 
     @Test
@@ -55,16 +68,15 @@ public class TodoRestControllerTest {
                 .setCompleted(true)
                 .build();
         
-        GetAllTodosResponse grpcResponse = GetAllTodosResponse.newBuilder()
-                .addTodos(grpcTodo1)
-                .addTodos(grpcTodo2)
-                .build();
-        
-        when(todoServiceStub.getAllTodos(any(GetAllTodosRequest.class))).thenReturn(grpcResponse);
+        when(todoServiceStub.getAllTodos(GetAllTodosRequest.newBuilder().setVersionOnly(true).build()))
+                .thenReturn(GetAllTodosResponse.newBuilder().setVersion(3L).build());
+        when(todoServiceStub.streamTodos(any(StreamTodosRequest.class)))
+                .thenReturn(Arrays.asList(grpcTodo1, grpcTodo2).iterator());
 
         mockMvc.perform(get("/api/todos")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
                 .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].id").value(1))
                 .andExpect(jsonPath("$[0].title").value("Test Todo 1"))
@@ -72,6 +84,87 @@ public class TodoRestControllerTest {
                 .andExpect(jsonPath("$[1].completed").value(true));
     }
 
+    @Test
+    void testGetAllTodos_NotModified() throws Exception {
+        when(todoServiceStub.getAllTodos(GetAllTodosRequest.newBuilder().setVersionOnly(true).build()))
+                .thenReturn(GetAllTodosResponse.newBuilder().setVersion(3L).build());
+
+        mockMvc.perform(get("/api/todos")
+                .header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+
+        verify(todoServiceStub, never()).streamTodos(any(StreamTodosRequest.class));
+    }
+
+    @Test
+    void testGetAllTodos_StreamOverloaded() throws Exception {
+        when(todoServiceStub.getAllTodos(any(GetAllTodosRequest.class)))
+                .thenReturn(GetAllTodosResponse.newBuilder().setVersion(3L).build());
+        when(todoServiceStub.streamTodos(any(StreamTodosRequest.class)))
+                .thenThrow(Status.RESOURCE_EXHAUSTED.asRuntimeException());
+
+        mockMvc.perform(get("/api/todos"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @Test
+    void testGetAllTodos_StreamFailsPartWay() throws Exception {
+        when(todoServiceStub.getAllTodos(any(GetAllTodosRequest.class)))
+                .thenReturn(GetAllTodosResponse.newBuilder().setVersion(3L).build());
+        when(todoServiceStub.streamTodos(any(StreamTodosRequest.class)))
+                .thenReturn(failingAfter(2));
+
+        // Nothing has left the buffer yet, so the partial list gives way to an error
+        mockMvc.perform(get("/api/todos"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testGetAllTodos_StreamFailsAfterCommit() {
+        when(todoServiceStub.getAllTodos(any(GetAllTodosRequest.class)))
+                .thenReturn(GetAllTodosResponse.newBuilder().setVersion(3L).build());
+        when(todoServiceStub.streamTodos(any(StreamTodosRequest.class)))
+                .thenReturn(failingAfter(1000));
+
+        // The response is already on its way, so the failure must reach the container rather than end it cleanly
+        assertThatThrownBy(() -> mockMvc.perform(get("/api/todos")))
+                .hasRootCauseInstanceOf(StatusRuntimeException.class);
+    }
+
+    @Test
+    void testGetAllTodos_Paged() throws Exception {
+        // Mock gRPC response
+        com.example.grpc.todo.Todo grpcTodo = com.example.grpc.todo.Todo.newBuilder()
+                .setId(1L)
+                .setTitle("Test Todo 1")
+                .setDescription("Description 1")
+                .setCompleted(false)
+                .build();
+
+        GetAllTodosResponse grpcResponse = GetAllTodosResponse.newBuilder()
+                .addTodos(grpcTodo)
+                .setNextPageToken("next")
+                .build();
+
+        when(todoServiceStub.getAllTodos(GetAllTodosRequest.newBuilder()
+                .setPageSize(1)
+                .setPageToken("start")
+                .build())).thenReturn(grpcResponse);
+
+        mockMvc.perform(get("/api/todos")
+                .param("pageSize", "1")
+                .param("pageToken", "start")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Page-Token", "next"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
     @Test
     void testGetTodoById() throws Exception {
         // Mock gRPC response
@@ -152,6 +245,104 @@ public class TodoRestControllerTest {
                 .andExpect(jsonPath("$.completed").value(true));
     }
 
+    @Test
+    void testGetTodoById_NotModified() throws Exception {
+        // Mock gRPC response: the server skips the payload when the version matches
+        com.example.grpc.todo.Todo grpcTodo = com.example.grpc.todo.Todo.newBuilder()
+                .setId(1L)
+                .setVersion(2L)
+                .build();
+
+        when(todoServiceStub.getTodo(GetTodoRequest.newBuilder().setId(1L).setIfNotVersion(2L).build()))
+                .thenReturn(grpcTodo);
+
+        mockMvc.perform(get("/api/todos/1")
+                .header("If-None-Match", "\"2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testUpdateTodo_PreconditionFailed() throws Exception {
+        // Prepare request
+        Todo todo = Todo.builder()
+                .id(1L)
+                .title("Updated Todo")
+                .description("Updated Description")
+                .completed(true)
+                .build();
+
+        when(todoServiceStub.updateTodo(any(UpdateTodoRequest.class)))
+                .thenThrow(Status.FAILED_PRECONDITION.asRuntimeException());
+
+        mockMvc.perform(put("/api/todos/1")
+                .header("If-Match", "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(todo)))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(todoServiceStub).updateTodo(argThat(request -> request.hasIfVersion() && request.getIfVersion() == 1L));
+    }
+
+    @Test
+    void testGetAllTodos_PageTokenWithoutPageSize() throws Exception {
+        when(todoServiceStub.getAllTodos(GetAllTodosRequest.newBuilder().setPageToken("abc").build()))
+                .thenThrow(Status.INVALID_ARGUMENT.asRuntimeException());
+
+        mockMvc.perform(get("/api/todos").param("pageToken", "abc"))
+                .andExpect(status().isBadRequest());
+
+        verify(todoServiceStub, never()).streamTodos(any(StreamTodosRequest.class));
+    }
+
+    @Test
+    void testPatchTodo() throws Exception {
+        // Mock gRPC response
+        com.example.grpc.todo.Todo grpcTodo = com.example.grpc.todo.Todo.newBuilder()
+                .setId(1L)
+                .setTitle("Test Todo")
+                .setDescription("Description")
+                .setCompleted(true)
+                .setVersion(2L)
+                .build();
+
+        UpdateTodoRequest expected = UpdateTodoRequest.newBuilder()
+                .setId(1L)
+                .setCompleted(true)
+                .setUpdateMask(FieldMask.newBuilder().addPaths("completed"))
+                .build();
+        when(todoServiceStub.updateTodo(expected)).thenReturn(grpcTodo);
+
+        mockMvc.perform(patch("/api/todos/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"completed\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.title").value("Test Todo"))
+                .andExpect(jsonPath("$.completed").value(true));
+    }
+
+    @Test
+    void testPatchTodo_WrongType() throws Exception {
+        mockMvc.perform(patch("/api/todos/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"completed\":\"yes\"}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(todoServiceStub);
+    }
+
+    @Test
+    void testPatchTodo_EmptyBody() throws Exception {
+        mockMvc.perform(patch("/api/todos/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(todoServiceStub);
+    }
+
     @Test
     void testDeleteTodo() throws Exception {
         // Mock gRPC response
@@ -166,4 +357,84 @@ public class TodoRestControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true));
     }
+
+    @Test
+    void testDeleteCompletedTodos() throws Exception {
+        when(todoServiceStub.deleteTodos(DeleteTodosRequest.newBuilder().setCompleted(true).build()))
+                .thenReturn(DeleteTodosResponse.newBuilder().setDeletedCount(2).build());
+
+        mockMvc.perform(delete("/api/todos").param("completed", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(2));
+    }
+
+    @Test
+    void testListTodos() throws Exception {
+        ListTodosRequest expected = ListTodosRequest.newBuilder()
+                .setCompleted(false)
+                .setSortBy(ListTodosRequest.SortField.TITLE)
+                .setDescending(true)
+                .build();
+        com.example.grpc.todo.Todo grpcTodo = com.example.grpc.todo.Todo.newBuilder()
+                .setId(1L)
+                .setTitle("Test Todo")
+                .build();
+        when(todoServiceStub.listTodos(expected))
+                .thenReturn(ListTodosResponse.newBuilder().addTodos(grpcTodo).setTruncated(true).build());
+
+        mockMvc.perform(get("/api/todos").param("completed", "false").param("sort", "-title"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Truncated", "true"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Test Todo"));
+    }
+
+    @Test
+    void testListTodos_UnknownSort() throws Exception {
+        mockMvc.perform(get("/api/todos").param("sort", "description"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(todoServiceStub);
+    }
+
+    @Test
+    void testGetTodoById_Overloaded() throws Exception {
+        when(todoServiceStub.getTodo(any())).thenThrow(Status.RESOURCE_EXHAUSTED.asRuntimeException());
+
+        mockMvc.perform(get("/api/todos/1"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testCreateTodo_Overloaded() throws Exception {
+        when(todoServiceStub.createTodo(any())).thenThrow(Status.RESOURCE_EXHAUSTED.asRuntimeException());
+
+        mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"New Todo\",\"description\":\"New Description\"}"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    private static Iterator<com.example.grpc.todo.Todo> failingAfter(int count) {
+        return new Iterator<com.example.grpc.todo.Todo>() {
+            private long id;
+
+            @Override
+            public boolean hasNext() {
+                if (id == count) {
+                    throw Status.UNAVAILABLE.asRuntimeException();
+                }
+                return true;
+            }
+
+            @Override
+            public com.example.grpc.todo.Todo next() {
+                id++;
+                return com.example.grpc.todo.Todo.newBuilder()
+                        .setId(id)
+                        .setTitle("Test Todo " + id)
+                        .build();
+            }
+        };
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.grpc;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CallDeadlinesTest {
+
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+    private final CallDeadlines deadlines = new CallDeadlines(transactionManager);
+
+    @Test
+    void testTransactionTimeoutIsTheTimeLeft() throws Exception {
+        // given
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Context.CancellableContext context = Context.current().withDeadlineAfter(3, TimeUnit.SECONDS, scheduler);
+
+        try {
+            // when
+            String result = context.call(() -> deadlines.read(() -> "todos"));
+
+            // then
+            assertThat(result).isEqualTo("todos");
+            assertThat(transactionManager.definitions).hasSize(1);
+            assertThat(transactionManager.definitions.get(0).getTimeout()).isEqualTo(3);
+            assertThat(transactionManager.definitions.get(0).isReadOnly()).isTrue();
+        } finally {
+            context.cancel(null);
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWithoutDeadlineRunsWithoutTransaction() {
+        // when
+        String result = deadlines.write(() -> "saved");
+
+        // then
+        assertThat(result).isEqualTo("saved");
+        assertThat(transactionManager.definitions).isEmpty();
+    }
+
+    @Test
+    void testCancelledCallSkipsTheWork() {
+        // given
+        Context.CancellableContext context = Context.current().withCancellation();
+        context.cancel(null);
+        List<String> ran = new ArrayList<>();
+
+        // when / then
+        assertThatThrownBy(() -> context.run(() -> deadlines.write(() -> ran.add("saved"))))
+                .isInstanceOfSatisfying(StatusRuntimeException.class,
+                        e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.CANCELLED));
+        assertThat(ran).isEmpty();
+        assertThat(transactionManager.definitions).isEmpty();
+    }
+
+    @Test
+    void testTimedOutStatementReportsDeadlineExceeded() {
+        // given
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Context.CancellableContext context = Context.current().withDeadlineAfter(50, TimeUnit.MILLISECONDS, scheduler);
+
+        try {
+            // when / then
+            assertThatThrownBy(() -> context.run(() -> deadlines.read(() -> {
+                sleep(100);
+                throw new QueryTimeoutException("statement cancelled");
+            })))
+                    .isInstanceOfSatisfying(StatusRuntimeException.class,
+                            e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED))
+                    .hasCauseInstanceOf(QueryTimeoutException.class);
+            assertThat(transactionManager.rollbacks).isEqualTo(1);
+        } finally {
+            context.cancel(null);
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final List<TransactionDefinition> definitions = new ArrayList<>();
+        private int rollbacks;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            definitions.add(definition);
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks++;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.grpc;
+
+import com.example.grpc.todo.GetTodoRequest;
+import com.example.grpc.todo.Todo;
+import com.example.grpc.todo.TodoServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrencyLimitInterceptorTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void testRejectsCallsOverTheLimit() throws Exception {
+        // given
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(1, 1, 1, meterRegistry);
+        String serverName = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(serverName)
+                .addService(ServerInterceptors.intercept(new TodoServiceGrpc.TodoServiceImplBase() {
+                    @Override
+                    public void getTodo(GetTodoRequest request, StreamObserver<Todo> responseObserver) {
+                        entered.countDown();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        responseObserver.onNext(Todo.newBuilder().setId(request.getId()).build());
+                        responseObserver.onCompleted();
+                    }
+                }, interceptor))
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(serverName).build();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+
+        try {
+            TodoServiceGrpc.TodoServiceBlockingStub stub = TodoServiceGrpc.newBlockingStub(channel);
+            Future<Todo> first = caller.submit(() -> stub.getTodo(GetTodoRequest.newBuilder().setId(1L).build()));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // when
+            assertThatThrownBy(() -> stub.getTodo(GetTodoRequest.newBuilder().setId(2L).build()))
+                    .isInstanceOfSatisfying(StatusRuntimeException.class,
+                            e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED));
+            release.countDown();
+
+            // then
+            assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+            String method = TodoServiceGrpc.getGetTodoMethod().getFullMethodName();
+            assertThat(meterRegistry.get("grpc.server.concurrency.rejected").tag("method", method).functionCounter().count())
+                    .isEqualTo(1.0);
+            assertThat(interceptor.limitFor(method).getInFlight()).isZero();
+        } finally {
+            caller.shutdownNow();
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyRises() {
+        // given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 100);
+        saturate(limit, 1 * MILLIS, 50);
+        int steady = limit.getLimit();
+
+        // when
+        saturate(limit, 20 * MILLIS, 1);
+
+        // then
+        assertThat(limit.getLimit()).isLessThan(steady / 2);
+        assertThat(limit.getLimit()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyHolds() {
+        // given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 1000);
+
+        // when
+        saturate(limit, 1 * MILLIS, 50);
+
+        // then
+        assertThat(limit.getLimit()).isGreaterThan(20);
+    }
+
+    @Test
+    void testLightLoadDoesNotMoveTheLimit() {
+        // given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 1000);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+            limit.release(i < 50 ? MILLIS : 50 * MILLIS);
+        }
+
+        // then
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    // Fills the limit, then completes every call with the given latency, round after round
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(rttNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.grpc;
+
+import com.example.grpc.todo.GetTodoRequest;
+import com.example.grpc.todo.Todo;
+import com.example.grpc.todo.TodoServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class GrpcMetricsInterceptorTest {
+
+    @Test
+    void testRecordsLatencyPerMethodAndStatus() throws Exception {
+        // given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        String serverName = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(new TodoServiceGrpc.TodoServiceImplBase() {
+                    @Override
+                    public void getTodo(GetTodoRequest request, StreamObserver<Todo> responseObserver) {
+                        if (request.getId() == 1L) {
+                            responseObserver.onNext(Todo.newBuilder().setId(1L).build());
+                            responseObserver.onCompleted();
+                        } else {
+                            responseObserver.onError(Status.NOT_FOUND.asRuntimeException());
+                        }
+                    }
+                }, new GrpcMetricsInterceptor(meterRegistry)))
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+
+        try {
+            TodoServiceGrpc.TodoServiceBlockingStub stub = TodoServiceGrpc.newBlockingStub(channel);
+
+            // when
+            stub.getTodo(GetTodoRequest.newBuilder().setId(1L).build());
+            stub.getTodo(GetTodoRequest.newBuilder().setId(1L).build());
+            Throwable error = catchThrowable(() -> stub.getTodo(GetTodoRequest.newBuilder().setId(2L).build()));
+
+            // then
+            assertThat(Status.fromThrowable(error).getCode()).isEqualTo(Status.Code.NOT_FOUND);
+            String method = TodoServiceGrpc.getGetTodoMethod().getFullMethodName();
+            assertThat(meterRegistry.get(GrpcMetricsInterceptor.CALLS).tags("method", method, "status", "OK").timer().count())
+                    .isEqualTo(2);
+            assertThat(meterRegistry.get(GrpcMetricsInterceptor.CALLS).tags("method", method, "status", "NOT_FOUND").timer().count())
+                    .isEqualTo(1);
+            assertThat(meterRegistry.get(GrpcMetricsInterceptor.CALLS + ".active").tag("method", method).gauge().value())
+                    .isZero();
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.grpc;
+
+import com.example.entity.Todo;
+import com.example.grpc.todo.TodoEvent;
+import com.example.grpc.todo.WatchTodosRequest;
+import com.example.service.TodoChangeEvent;
+import io.grpc.internal.testing.StreamRecorder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TodoChangeFeedTest {
+
+    @Test
+    void testSubscriberReceivesChangesInOrder() {
+        // given
+        TodoChangeFeed feed = new TodoChangeFeed(16, Runnable::run);
+        StreamRecorder<TodoEvent> subscriber = StreamRecorder.create();
+        feed.subscribe(WatchTodosRequest.getDefaultInstance(), subscriber);
+
+        // when
+        feed.onTodoChanged(TodoChangeEvent.created(todo(1L, "Todo 1")));
+        feed.onTodoChanged(TodoChangeEvent.updated(todo(1L, "Todo 1 updated")));
+        feed.onTodoChanged(TodoChangeEvent.deleted(1L));
+
+        // then
+        assertThat(subscriber.getValues()).extracting(TodoEvent::getType)
+                .containsExactly(TodoEvent.Type.CREATED, TodoEvent.Type.UPDATED, TodoEvent.Type.DELETED);
+        assertThat(subscriber.getValues()).extracting(TodoEvent::getSequence).containsExactly(1L, 2L, 3L);
+        assertThat(subscriber.getValues().get(1).getTodo().getTitle()).isEqualTo("Todo 1 updated");
+        assertThat(subscriber.getValues().get(2).hasTodo()).isFalse();
+    }
+
+    @Test
+    void testSubscriberResumesAfterSequence() {
+        // given
+        TodoChangeFeed feed = new TodoChangeFeed(16, Runnable::run);
+        feed.onTodoChanged(TodoChangeEvent.created(todo(1L, "Todo 1")));
+        feed.onTodoChanged(TodoChangeEvent.created(todo(2L, "Todo 2")));
+        feed.onTodoChanged(TodoChangeEvent.created(todo(3L, "Todo 3")));
+
+        StreamRecorder<TodoEvent> subscriber = StreamRecorder.create();
+
+        // when
+        feed.subscribe(WatchTodosRequest.newBuilder().setResumeAfter(1L).build(), subscriber);
+
+        // then
+        assertThat(subscriber.getValues()).extracting(TodoEvent::getId).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void testSlowSubscriberIsResynced() {
+        // given
+        Queue<Runnable> pending = new ArrayDeque<>();
+        TodoChangeFeed feed = new TodoChangeFeed(4, pending::add);
+        StreamRecorder<TodoEvent> subscriber = StreamRecorder.create();
+        feed.subscribe(WatchTodosRequest.getDefaultInstance(), subscriber);
+
+        // when: the writer laps the subscriber before it gets to drain
+        for (long id = 1; id <= 6; id++) {
+            feed.onTodoChanged(TodoChangeEvent.created(todo(id, "Todo " + id)));
+        }
+        while (!pending.isEmpty()) {
+            pending.poll().run();
+        }
+        feed.onTodoChanged(TodoChangeEvent.created(todo(7L, "Todo 7")));
+        while (!pending.isEmpty()) {
+            pending.poll().run();
+        }
+
+        // then
+        assertThat(subscriber.getValues()).extracting(TodoEvent::getType)
+                .containsExactly(TodoEvent.Type.RESYNC, TodoEvent.Type.CREATED);
+        assertThat(subscriber.getValues().get(0).getSequence()).isEqualTo(6L);
+        assertThat(subscriber.getValues().get(1).getId()).isEqualTo(7L);
+    }
+
+    @Test
+    void testDestroyCompletesSubscribers() throws Exception {
+        // given
+        TodoChangeFeed feed = new TodoChangeFeed(16, Runnable::run);
+        StreamRecorder<TodoEvent> subscriber = StreamRecorder.create();
+        feed.subscribe(WatchTodosRequest.getDefaultInstance(), subscriber);
+
+        // when
+        feed.destroy();
+
+        // then
+        assertThat(subscriber.getError()).isNull();
+        assertThat(subscriber.awaitCompletion(0, TimeUnit.SECONDS)).isTrue();
+        assertThat(feed.subscriberCount()).isZero();
+    }
+
+    private static Todo todo(Long id, String title) {
+        return Todo.builder().id(id).title(title).description("Description").completed(false).build();
+    }
+}
@@ -2,21 +2,44 @@ package com.example.grpc;
 
 import com.example.entity.Todo;
 import com.example.grpc.todo.*;
+import com.example.service.TodoSearchIndex;
 import com.example.service.TodoService;
+import com.example.service.TodoWriteExecutor;
+import com.google.protobuf.FieldMask;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.internal.testing.StreamRecorder;
+import io.grpc.stub.StreamObserver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -63,11 +86,327 @@ public class TodoGrpcServiceTest {
         verify(todoService, times(1)).getAllTodos();
     }
 
+    @Test
+    void testGetAllTodos_Paged() throws Exception {
+        // given
+        Todo todo1 = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo todo2 = Todo.builder().id(2L).title("Todo 2").description("Description 2").completed(true).build();
+        Todo todo3 = Todo.builder().id(3L).title("Todo 3").description("Description 3").completed(false).build();
+
+        when(todoService.getTodosAfter(0L, 3)).thenReturn(Arrays.asList(todo1, todo2, todo3));
+        when(todoService.getTodosAfter(2L, 3)).thenReturn(Collections.singletonList(todo3));
+
+        // when
+        StreamRecorder<GetAllTodosResponse> firstObserver = StreamRecorder.create();
+        todoGrpcService.getAllTodos(GetAllTodosRequest.newBuilder().setPageSize(2).build(), firstObserver);
+        GetAllTodosResponse firstPage = firstObserver.firstValue().get(5, TimeUnit.SECONDS);
+
+        StreamRecorder<GetAllTodosResponse> secondObserver = StreamRecorder.create();
+        todoGrpcService.getAllTodos(GetAllTodosRequest.newBuilder()
+                .setPageSize(2)
+                .setPageToken(firstPage.getNextPageToken())
+                .build(), secondObserver);
+        GetAllTodosResponse secondPage = secondObserver.firstValue().get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(firstPage.getTodosList()).extracting(com.example.grpc.todo.Todo::getId).containsExactly(1L, 2L);
+        assertThat(firstPage.getNextPageToken()).isNotEmpty();
+        assertThat(secondPage.getTodosList()).extracting(com.example.grpc.todo.Todo::getId).containsExactly(3L);
+        assertThat(secondPage.getNextPageToken()).isEmpty();
+
+        verify(todoService, never()).getAllTodos();
+    }
+
+    @Test
+    void testGetAllTodos_PageTokenWithoutPageSizeIsRejected() throws Exception {
+        // given
+        GetAllTodosRequest request = GetAllTodosRequest.newBuilder()
+                .setPageToken(PageTokens.encode(2L))
+                .build();
+        StreamRecorder<GetAllTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.getAllTodos(request, responseObserver);
+
+        // then
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode())
+                .isEqualTo(Status.Code.INVALID_ARGUMENT);
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    void testGetAllTodos_InvalidPageToken() throws Exception {
+        // given
+        GetAllTodosRequest request = GetAllTodosRequest.newBuilder()
+                .setPageSize(2)
+                .setPageToken("%%%")
+                .build();
+        StreamRecorder<GetAllTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.getAllTodos(request, responseObserver);
+
+        // then
+        if (!responseObserver.awaitCompletion(5, TimeUnit.SECONDS)) {
+            throw new RuntimeException("The call did not terminate in time");
+        }
+
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode())
+                .isEqualTo(Status.Code.INVALID_ARGUMENT);
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    void testGetAllTodos_VersionOnly() throws Exception {
+        // given
+        when(todoService.getMutationVersion()).thenReturn(7L);
+        StreamRecorder<GetAllTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.getAllTodos(GetAllTodosRequest.newBuilder().setVersionOnly(true).build(), responseObserver);
+
+        // then
+        GetAllTodosResponse response = responseObserver.firstValue().get(5, TimeUnit.SECONDS);
+        assertThat(response.getVersion()).isEqualTo(7L);
+        assertThat(response.getTodosList()).isEmpty();
+        verify(todoService, never()).getAllTodos();
+    }
+
+    @Test
+    void testGetAllTodos_CachedUntilVersionChanges() throws Exception {
+        // given
+        Todo todo1 = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo todo2 = Todo.builder().id(2L).title("Todo 2").description("Description 2").completed(true).build();
+
+        when(todoService.getMutationVersion()).thenReturn(1L, 1L, 2L);
+        when(todoService.getAllTodos()).thenReturn(Collections.singletonList(todo1), Arrays.asList(todo1, todo2));
+
+        // when
+        StreamRecorder<GetAllTodosResponse> first = StreamRecorder.create();
+        todoGrpcService.getAllTodos(GetAllTodosRequest.getDefaultInstance(), first);
+        StreamRecorder<GetAllTodosResponse> second = StreamRecorder.create();
+        todoGrpcService.getAllTodos(GetAllTodosRequest.getDefaultInstance(), second);
+        StreamRecorder<GetAllTodosResponse> third = StreamRecorder.create();
+        todoGrpcService.getAllTodos(GetAllTodosRequest.getDefaultInstance(), third);
+
+        // then
+        assertThat(second.getValues().get(0)).isSameAs(first.getValues().get(0));
+        assertThat(first.getValues().get(0).getTodosList()).hasSize(1);
+        assertThat(third.getValues().get(0).getTodosList()).hasSize(2);
+        verify(todoService, times(2)).getAllTodos();
+    }
+
+    @Test
+    void testGetAllTodos_CachedResponseOverTransport() throws Exception {
+        // given
+        Todo todo1 = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo todo2 = Todo.builder().id(2L).title("Todo 2").description("Description 2").completed(true).build();
+
+        when(todoService.getMutationVersion()).thenReturn(7L);
+        when(todoService.getAllTodos()).thenReturn(Arrays.asList(todo1, todo2));
+
+        String serverName = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(todoGrpcService)
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+
+        try {
+            TodoServiceGrpc.TodoServiceBlockingStub stub = TodoServiceGrpc.newBlockingStub(channel);
+
+            // when
+            GetAllTodosResponse first = stub.getAllTodos(GetAllTodosRequest.getDefaultInstance());
+            GetAllTodosResponse second = stub.getAllTodos(GetAllTodosRequest.getDefaultInstance());
+
+            // then
+            assertThat(first.getTodosList()).extracting(com.example.grpc.todo.Todo::getTitle)
+                    .containsExactly("Todo 1", "Todo 2");
+            assertThat(second).isEqualTo(first);
+            verify(todoService, times(1)).getAllTodos();
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetTodo_SkipsStoreOnceDeadlinePassed() throws Exception {
+        // given
+        ServerInterceptor queueing = new ServerInterceptor() {
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                         ServerCallHandler<ReqT, RespT> next) {
+                return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(next.startCall(call, headers)) {
+                    @Override
+                    public void onHalfClose() {
+                        // Stands in for time spent waiting for a handler thread
+                        sleep(200);
+                        super.onHalfClose();
+                    }
+                };
+            }
+        };
+        String serverName = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(serverName)
+                .addService(ServerInterceptors.intercept(todoGrpcService, new DeadlineServerInterceptor(), queueing))
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(serverName).build();
+
+        try {
+            // when
+            Throwable error = catchThrowable(() -> TodoServiceGrpc.newBlockingStub(channel)
+                    .withDeadlineAfter(50, TimeUnit.MILLISECONDS)
+                    .getTodo(GetTodoRequest.newBuilder().setId(1L).build()));
+
+            // then
+            assertThat(Status.fromThrowable(error).getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED);
+            verify(todoService, after(500).never()).getTodoById(any(), any());
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    void testListTodos() throws Exception {
+        // given
+        Todo todo = Todo.builder().id(2L).title("Buy milk").description("Description").completed(true).build();
+        Sort expectedSort = Sort.by(Sort.Direction.DESC, "title").and(Sort.by(Sort.Direction.DESC, "id"));
+        when(todoService.listTodos(true, "Buy", expectedSort, 21)).thenReturn(Collections.singletonList(todo));
+
+        ListTodosRequest request = ListTodosRequest.newBuilder()
+                .setCompleted(true)
+                .setTitlePrefix("Buy")
+                .setSortBy(ListTodosRequest.SortField.TITLE)
+                .setDescending(true)
+                .setLimit(20)
+                .build();
+        StreamRecorder<ListTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.listTodos(request, responseObserver);
+
+        // then
+        assertThat(responseObserver.getError()).isNull();
+        assertThat(responseObserver.getValues().get(0).getTodosList())
+                .extracting(com.example.grpc.todo.Todo::getTitle)
+                .containsExactly("Buy milk");
+        assertThat(responseObserver.getValues().get(0).getTruncated()).isFalse();
+    }
+
+    @Test
+    void testListTodos_FlagsTruncatedList() throws Exception {
+        // given
+        Todo first = Todo.builder().id(1L).title("First").description("").completed(false).build();
+        Todo second = Todo.builder().id(2L).title("Second").description("").completed(false).build();
+        when(todoService.listTodos(null, "", Sort.by(Sort.Direction.ASC, "id"), 2)).thenReturn(Arrays.asList(first, second));
+        StreamRecorder<ListTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.listTodos(ListTodosRequest.newBuilder().setLimit(1).build(), responseObserver);
+
+        // then
+        ListTodosResponse response = responseObserver.getValues().get(0);
+        assertThat(response.getTodosList()).extracting(com.example.grpc.todo.Todo::getId).containsExactly(1L);
+        assertThat(response.getTruncated()).isTrue();
+    }
+
+    @Test
+    void testListTodos_DefaultsToIdOrderAndMaxLimit() throws Exception {
+        // given
+        when(todoService.listTodos(null, "", Sort.by(Sort.Direction.ASC, "id"), TodoGrpcService.MAX_PAGE_SIZE + 1))
+                .thenReturn(Collections.emptyList());
+        StreamRecorder<ListTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.listTodos(ListTodosRequest.getDefaultInstance(), responseObserver);
+
+        // then
+        assertThat(responseObserver.getError()).isNull();
+        assertThat(responseObserver.getValues().get(0).getTodosList()).isEmpty();
+    }
+
+    @Test
+    void testSearchTodos_NegativeOffsetTokenIsRejected() throws Exception {
+        // given
+        SearchTodosRequest request = SearchTodosRequest.newBuilder()
+                .setQuery("buy")
+                .setPageToken(PageTokens.encode(-1L))
+                .build();
+        StreamRecorder<SearchTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.searchTodos(request, responseObserver);
+
+        // then
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    void testImportChunkSizeMustBePositive() {
+        // when
+        Throwable thrown = catchThrowable(() -> new TodoGrpcService(todoService, 0));
+
+        // then
+        assertThat(thrown).isInstanceOf(IllegalStateException.class).hasMessageContaining("todo.import.chunk-size");
+    }
+
+    @Test
+    void testListTodos_LimitAboveMaximumIsRejected() throws Exception {
+        // given
+        StreamRecorder<ListTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.listTodos(ListTodosRequest.newBuilder().setLimit(TodoGrpcService.MAX_PAGE_SIZE + 1).build(), responseObserver);
+
+        // then
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    void testSearchTodos() throws Exception {
+        // given
+        Todo milk = Todo.builder().id(1L).title("Buy milk").description("").completed(false).build();
+        Todo bread = Todo.builder().id(2L).title("Buy bread").description("").completed(false).build();
+        Todo eggs = Todo.builder().id(3L).title("Buy eggs").description("").completed(false).build();
+        TodoSearchIndex searchIndex = new TodoSearchIndex();
+        Arrays.asList(milk, bread, eggs).forEach(searchIndex::index);
+        TodoGrpcService searchingService = new TodoGrpcService(todoService,
+                new TodoChangeFeed(TodoChangeFeed.DEFAULT_CAPACITY, Runnable::run), searchIndex,
+                TodoWriteExecutor.direct(), CallDeadlines.checkOnly(), TodoGrpcService.DEFAULT_IMPORT_CHUNK_SIZE);
+
+        when(todoService.getTodosByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(bread, milk));
+        when(todoService.getTodosByIds(Collections.singletonList(3L))).thenReturn(Collections.singletonList(eggs));
+
+        // when
+        StreamRecorder<SearchTodosResponse> first = StreamRecorder.create();
+        searchingService.searchTodos(SearchTodosRequest.newBuilder().setQuery("buy").setPageSize(2).build(), first);
+        StreamRecorder<SearchTodosResponse> second = StreamRecorder.create();
+        searchingService.searchTodos(SearchTodosRequest.newBuilder()
+                .setQuery("buy")
+                .setPageSize(2)
+                .setPageToken(first.getValues().get(0).getNextPageToken())
+                .build(), second);
+
+        // then
+        assertThat(first.getValues().get(0).getTodosList()).extracting(com.example.grpc.todo.Todo::getId)
+                .containsExactly(1L, 2L);
+        assertThat(first.getValues().get(0).getTotalSize()).isEqualTo(3);
+        assertThat(second.getValues().get(0).getTodosList()).extracting(com.example.grpc.todo.Todo::getId)
+                .containsExactly(3L);
+        assertThat(second.getValues().get(0).getNextPageToken()).isEmpty();
+    }
+
     @Test
     void testGetTodo() throws Exception {
         // given
         Todo todo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
-        when(todoService.getTodoById(1L)).thenReturn(Optional.of(todo));
+        when(todoService.getTodoById(eq(1L), any())).thenReturn(Optional.of(todo));
 
         GetTodoRequest request = GetTodoRequest.newBuilder().setId(1L).build();
         StreamRecorder<com.example.grpc.todo.Todo> responseObserver = StreamRecorder.create();
@@ -87,7 +426,7 @@ public class TodoGrpcServiceTest {
         assertThat(response.getId()).isEqualTo(1L);
         assertThat(response.getTitle()).isEqualTo("Todo 1");
 
-        verify(todoService, times(1)).getTodoById(1L);
+        verify(todoService, times(1)).getTodoById(eq(1L), any());
     }
 
     @Test
@@ -128,7 +467,7 @@ public class TodoGrpcServiceTest {
         Todo existingTodo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
         Todo updatedTodo = Todo.builder().id(1L).title("Updated Todo").description("Updated Description").completed(true).build();
 
-        when(todoService.getTodoById(1L)).thenReturn(Optional.of(existingTodo));
+        when(todoService.getTodoById(eq(1L), any())).thenReturn(Optional.of(existingTodo));
         when(todoService.updateTodo(any(Todo.class))).thenReturn(updatedTodo);
 
         UpdateTodoRequest request = UpdateTodoRequest.newBuilder()
@@ -156,10 +495,152 @@ public class TodoGrpcServiceTest {
         assertThat(response.getTitle()).isEqualTo("Updated Todo");
         assertThat(response.getCompleted()).isTrue();
 
-        verify(todoService, times(1)).getTodoById(1L);
+        verify(todoService, times(1)).getTodoById(eq(1L), any());
         verify(todoService, times(1)).updateTodo(any(Todo.class));
     }
 
+    @Test
+    void testUnsetIdIsRejected() {
+        // given
+        StreamRecorder<com.example.grpc.todo.Todo> getObserver = StreamRecorder.create();
+        StreamRecorder<com.example.grpc.todo.Todo> updateObserver = StreamRecorder.create();
+        StreamRecorder<DeleteTodoResponse> deleteObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.getTodo(GetTodoRequest.getDefaultInstance(), getObserver);
+        todoGrpcService.updateTodo(UpdateTodoRequest.getDefaultInstance(), updateObserver);
+        todoGrpcService.deleteTodo(DeleteTodoRequest.getDefaultInstance(), deleteObserver);
+
+        // then
+        assertThat(Status.fromThrowable(getObserver.getError()).getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        assertThat(Status.fromThrowable(updateObserver.getError()).getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        assertThat(Status.fromThrowable(deleteObserver.getError()).getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    void testGetTodo_NotModified() throws Exception {
+        // given
+        Todo todo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).version(3L).build();
+        when(todoService.getTodoById(eq(1L), any())).thenReturn(Optional.of(todo));
+
+        GetTodoRequest request = GetTodoRequest.newBuilder().setId(1L).setIfNotVersion(3L).build();
+        StreamRecorder<com.example.grpc.todo.Todo> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.getTodo(request, responseObserver);
+
+        // then
+        assertThat(responseObserver.getError()).isNull();
+        com.example.grpc.todo.Todo response = responseObserver.getValues().get(0);
+        assertThat(response.getId()).isEqualTo(1L);
+        assertThat(response.getVersion()).isEqualTo(3L);
+        assertThat(response.getTitle()).isEmpty();
+    }
+
+    @Test
+    void testUpdateTodo_FieldMask() throws Exception {
+        // given
+        Todo updatedTodo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(true).version(2L).build();
+        when(todoService.updateTodoFields(1L, Collections.singletonMap("completed", true), null))
+                .thenReturn(Optional.of(updatedTodo));
+
+        UpdateTodoRequest request = UpdateTodoRequest.newBuilder()
+                .setId(1L)
+                .setCompleted(true)
+                .setUpdateMask(FieldMask.newBuilder().addPaths("completed"))
+                .build();
+        StreamRecorder<com.example.grpc.todo.Todo> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.updateTodo(request, responseObserver);
+
+        // then
+        assertThat(responseObserver.getError()).isNull();
+        assertThat(responseObserver.getValues().get(0).getCompleted()).isTrue();
+        assertThat(responseObserver.getValues().get(0).getTitle()).isEqualTo("Todo 1");
+        verify(todoService, never()).getTodoById(anyLong(), any());
+        verify(todoService, never()).updateTodo(any(Todo.class));
+    }
+
+    @Test
+    void testUpdateTodo_FieldMaskNotFound() throws Exception {
+        // given
+        when(todoService.updateTodoFields(eq(1L), anyMap(), isNull())).thenReturn(Optional.empty());
+
+        UpdateTodoRequest request = UpdateTodoRequest.newBuilder()
+                .setId(1L)
+                .setTitle("Renamed")
+                .setUpdateMask(FieldMask.newBuilder().addPaths("title"))
+                .build();
+        StreamRecorder<com.example.grpc.todo.Todo> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.updateTodo(request, responseObserver);
+
+        // then
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode())
+                .isEqualTo(Status.Code.NOT_FOUND);
+    }
+
+    @Test
+    void testUpdateTodo_FieldMaskUnknownPath() throws Exception {
+        // given
+        UpdateTodoRequest request = UpdateTodoRequest.newBuilder()
+                .setId(1L)
+                .setUpdateMask(FieldMask.newBuilder().addPaths("id"))
+                .build();
+        StreamRecorder<com.example.grpc.todo.Todo> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.updateTodo(request, responseObserver);
+
+        // then
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode())
+                .isEqualTo(Status.Code.INVALID_ARGUMENT);
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    void testUpdateTodo_StaleVersion() throws Exception {
+        // given
+        Todo existingTodo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).version(4L).build();
+        when(todoService.getTodoById(eq(1L), any())).thenReturn(Optional.of(existingTodo));
+
+        UpdateTodoRequest request = UpdateTodoRequest.newBuilder()
+                .setId(1L)
+                .setTitle("Updated Todo")
+                .setIfVersion(3L)
+                .build();
+        StreamRecorder<com.example.grpc.todo.Todo> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.updateTodo(request, responseObserver);
+
+        // then
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode())
+                .isEqualTo(Status.Code.FAILED_PRECONDITION);
+        verify(todoService, never()).updateTodo(any(Todo.class));
+    }
+
+    @Test
+    void testUpdateTodo_ConcurrentModification() throws Exception {
+        // given
+        Todo existingTodo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).version(4L).build();
+        when(todoService.getTodoById(eq(1L), any())).thenReturn(Optional.of(existingTodo));
+        when(todoService.updateTodo(any(Todo.class))).thenThrow(new OptimisticLockingFailureException("stale"));
+
+        UpdateTodoRequest request = UpdateTodoRequest.newBuilder().setId(1L).setTitle("Updated Todo").build();
+        StreamRecorder<com.example.grpc.todo.Todo> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.updateTodo(request, responseObserver);
+
+        // then
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode())
+                .isEqualTo(Status.Code.ABORTED);
+    }
+
     @Test
     void testDeleteTodo() throws Exception {
         // given
@@ -187,4 +668,225 @@ public class TodoGrpcServiceTest {
 
         verify(todoService, times(1)).deleteTodo(1L);
     }
+
+    @Test
+    void testBatchCreateTodos() throws Exception {
+        // given
+        Todo saved1 = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo saved2 = Todo.builder().id(2L).title("Todo 2").description("Description 2").completed(true).build();
+        when(todoService.createTodos(anyList())).thenReturn(Arrays.asList(saved1, saved2));
+
+        BatchCreateTodosRequest request = BatchCreateTodosRequest.newBuilder()
+                .addRequests(CreateTodoRequest.newBuilder().setTitle("Todo 1").setDescription("Description 1"))
+                .addRequests(CreateTodoRequest.newBuilder().setTitle("Todo 2").setDescription("Description 2").setCompleted(true))
+                .build();
+        StreamRecorder<BatchCreateTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.batchCreateTodos(request, responseObserver);
+
+        // then
+        BatchCreateTodosResponse response = responseObserver.firstValue().get(5, TimeUnit.SECONDS);
+        assertThat(response.getTodosList()).extracting(com.example.grpc.todo.Todo::getId).containsExactly(1L, 2L);
+
+        verify(todoService, times(1)).createTodos(anyList());
+        verify(todoService, never()).createTodo(any(Todo.class));
+    }
+
+    @Test
+    void testBatchGetTodos() throws Exception {
+        // given
+        Todo todo1 = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo todo3 = Todo.builder().id(3L).title("Todo 3").description("Description 3").completed(false).build();
+        when(todoService.getTodosByIds(anyCollection())).thenReturn(Arrays.asList(todo1, todo3));
+
+        BatchGetTodosRequest request = BatchGetTodosRequest.newBuilder()
+                .addAllIds(Arrays.asList(3L, 2L, 1L))
+                .build();
+        StreamRecorder<BatchGetTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.batchGetTodos(request, responseObserver);
+
+        // then
+        BatchGetTodosResponse response = responseObserver.firstValue().get(5, TimeUnit.SECONDS);
+        assertThat(response.getTodosList()).extracting(com.example.grpc.todo.Todo::getId).containsExactly(3L, 1L);
+        assertThat(response.getMissingIdsList()).containsExactly(2L);
+
+        verify(todoService, times(1)).getTodosByIds(anyCollection());
+    }
+
+    @Test
+    void testBatchDeleteTodos() throws Exception {
+        // given
+        when(todoService.deleteTodos(anyCollection())).thenReturn(2);
+
+        BatchDeleteTodosRequest request = BatchDeleteTodosRequest.newBuilder()
+                .addAllIds(Arrays.asList(1L, 2L, 3L))
+                .build();
+        StreamRecorder<BatchDeleteTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.batchDeleteTodos(request, responseObserver);
+
+        // then
+        BatchDeleteTodosResponse response = responseObserver.firstValue().get(5, TimeUnit.SECONDS);
+        assertThat(response.getDeletedCount()).isEqualTo(2);
+
+        verify(todoService, times(1)).deleteTodos(anyCollection());
+    }
+
+    @Test
+    void testDeleteTodos_ByCompleted() throws Exception {
+        // given
+        when(todoService.deleteTodosByCompleted(true)).thenReturn(3);
+        StreamRecorder<DeleteTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.deleteTodos(DeleteTodosRequest.newBuilder().setCompleted(true).build(), responseObserver);
+
+        // then
+        assertThat(responseObserver.getError()).isNull();
+        assertThat(responseObserver.getValues().get(0).getDeletedCount()).isEqualTo(3);
+        verify(todoService, never()).deleteTodos(anyCollection());
+    }
+
+    @Test
+    void testDeleteTodos_IdsAndFilter() throws Exception {
+        // given
+        DeleteTodosRequest request = DeleteTodosRequest.newBuilder().addIds(1L).setCompleted(true).build();
+        StreamRecorder<DeleteTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.deleteTodos(request, responseObserver);
+
+        // then
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode())
+                .isEqualTo(Status.Code.INVALID_ARGUMENT);
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    void testBatchGetTodos_TooLarge() throws Exception {
+        // given
+        BatchGetTodosRequest.Builder request = BatchGetTodosRequest.newBuilder();
+        for (long id = 1; id <= TodoGrpcService.MAX_BATCH_SIZE + 1; id++) {
+            request.addIds(id);
+        }
+        StreamRecorder<BatchGetTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.batchGetTodos(request.build(), responseObserver);
+
+        // then
+        if (!responseObserver.awaitCompletion(5, TimeUnit.SECONDS)) {
+            throw new RuntimeException("The call did not terminate in time");
+        }
+
+        assertThat(Status.fromThrowable(responseObserver.getError()).getCode())
+                .isEqualTo(Status.Code.INVALID_ARGUMENT);
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    void testImportTodos() throws Exception {
+        // given
+        TodoGrpcService importingService = new TodoGrpcService(todoService, 2);
+        when(todoService.importTodos(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new IllegalStateException("constraint violation"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        StreamRecorder<ImportTodosResponse> responseObserver = StreamRecorder.create();
+
+        // when
+        StreamObserver<CreateTodoRequest> requestObserver = importingService.importTodos(responseObserver);
+        for (int i = 1; i <= 5; i++) {
+            requestObserver.onNext(CreateTodoRequest.newBuilder()
+                    .setTitle("Todo " + i)
+                    .setDescription("Description " + i)
+                    .build());
+        }
+        requestObserver.onCompleted();
+
+        // then
+        ImportTodosResponse response = responseObserver.firstValue().get(5, TimeUnit.SECONDS);
+        assertThat(response.getReceivedCount()).isEqualTo(5);
+        assertThat(response.getImportedCount()).isEqualTo(3);
+        assertThat(response.getFailedCount()).isEqualTo(2);
+        assertThat(response.getErrorsList()).containsExactly("Rows 3-4: constraint violation");
+
+        verify(todoService, times(3)).importTodos(anyList());
+        verify(todoService, never()).createTodo(any(Todo.class));
+    }
+
+    @Test
+    void testStreamTodos() throws Exception {
+        // given
+        Todo todo1 = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo todo2 = Todo.builder().id(2L).title("Todo 2").description("Description 2").completed(true).build();
+
+        when(todoService.getTodosAfter(0L, 10)).thenReturn(Arrays.asList(todo1, todo2));
+
+        StreamTodosRequest request = StreamTodosRequest.newBuilder().setChunkSize(10).build();
+        StreamRecorder<com.example.grpc.todo.Todo> responseObserver = StreamRecorder.create();
+
+        // when
+        todoGrpcService.streamTodos(request, responseObserver);
+
+        // then
+        if (!responseObserver.awaitCompletion(5, TimeUnit.SECONDS)) {
+            throw new RuntimeException("The call did not terminate in time");
+        }
+
+        assertThat(responseObserver.getError()).isNull();
+        assertThat(responseObserver.getValues()).extracting(com.example.grpc.todo.Todo::getTitle)
+                .containsExactly("Todo 1", "Todo 2");
+
+        verify(todoService, times(1)).getTodosAfter(0L, 10);
+    }
+
+    @Test
+    void testStreamTodos_ReadsInChunksOverTransport() throws Exception {
+        // given
+        Todo todo1 = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo todo2 = Todo.builder().id(2L).title("Todo 2").description("Description 2").completed(true).build();
+        Todo todo3 = Todo.builder().id(3L).title("Todo 3").description("Description 3").completed(false).build();
+
+        when(todoService.getTodosAfter(0L, 2)).thenReturn(Arrays.asList(todo1, todo2));
+        when(todoService.getTodosAfter(2L, 2)).thenReturn(Collections.singletonList(todo3));
+
+        String serverName = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(todoGrpcService)
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+
+        try {
+            // when
+            Iterator<com.example.grpc.todo.Todo> stream = TodoServiceGrpc.newBlockingStub(channel)
+                    .streamTodos(StreamTodosRequest.newBuilder().setChunkSize(2).build());
+
+            List<Long> ids = new ArrayList<>();
+            stream.forEachRemaining(todo -> ids.add(todo.getId()));
+
+            // then
+            assertThat(ids).containsExactly(1L, 2L, 3L);
+            verify(todoService, times(1)).getTodosAfter(0L, 2);
+            verify(todoService, times(1)).getTodosAfter(2L, 2);
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
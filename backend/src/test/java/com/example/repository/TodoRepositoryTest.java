@@ -5,11 +5,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 public class TodoRepositoryTest {
@@ -69,6 +75,28 @@ public class TodoRepositoryTest {
         assertThat(found.get().isCompleted()).isFalse();
     }
 
+    @Test
+    public void testFindByIdGreaterThan() {
+        // given
+        Todo todo1 = Todo.builder().title("Todo 1").description("Description 1").completed(false).build();
+        Todo todo2 = Todo.builder().title("Todo 2").description("Description 2").completed(false).build();
+        Todo todo3 = Todo.builder().title("Todo 3").description("Description 3").completed(true).build();
+
+        entityManager.persist(todo1);
+        entityManager.persist(todo2);
+        entityManager.persist(todo3);
+        entityManager.flush();
+
+        // when
+        List<Todo> firstPage = todoRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+        List<Todo> secondPage = todoRepository.findByIdGreaterThanOrderByIdAsc(
+                firstPage.get(firstPage.size() - 1).getId(), PageRequest.of(0, 2));
+
+        // then
+        assertThat(firstPage).extracting(Todo::getTitle).containsExactly("Todo 1", "Todo 2");
+        assertThat(secondPage).extracting(Todo::getTitle).containsExactly("Todo 3");
+    }
+
     @Test
     public void testSave() {
         // given
@@ -88,6 +116,195 @@ public class TodoRepositoryTest {
         assertThat(savedTodo.isCompleted()).isFalse();
     }
 
+    @Test
+    public void testSaveAll() {
+        // given
+        List<Todo> todos = Arrays.asList(
+                Todo.builder().title("Todo 1").description("Description 1").completed(false).build(),
+                Todo.builder().title("Todo 2").description("Description 2").completed(true).build());
+
+        // when
+        List<Todo> saved = todoRepository.saveAll(todos);
+        entityManager.flush();
+
+        // then
+        assertThat(saved).extracting(Todo::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(todoRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testClearPersistenceContext() {
+        // given
+        Todo todo = todoRepository.save(Todo.builder()
+                .title("Imported Todo")
+                .description("Imported")
+                .completed(false)
+                .build());
+        todoRepository.flush();
+
+        // when
+        todoRepository.clearPersistenceContext();
+
+        // then
+        assertThat(entityManager.getEntityManager().contains(todo)).isFalse();
+        assertThat(todoRepository.findById(todo.getId())).isPresent();
+    }
+
+    @Test
+    public void testDeleteByIdIn() {
+        // given
+        Todo todo1 = Todo.builder().title("Todo 1").description("Description 1").completed(false).build();
+        Todo todo2 = Todo.builder().title("Todo 2").description("Description 2").completed(false).build();
+        Todo todo3 = Todo.builder().title("Todo 3").description("Description 3").completed(false).build();
+
+        entityManager.persist(todo1);
+        entityManager.persist(todo2);
+        entityManager.persist(todo3);
+        entityManager.flush();
+
+        // when
+        int deleted = todoRepository.deleteByIdIn(Arrays.asList(todo1.getId(), todo3.getId(), -1L));
+
+        // then
+        assertThat(deleted).isEqualTo(2);
+        assertThat(todoRepository.findAll()).extracting(Todo::getTitle).containsExactly("Todo 2");
+    }
+
+    @Test
+    public void testUpdateFields() {
+        // given
+        Todo todo = Todo.builder()
+                .title("Todo")
+                .description("Description")
+                .completed(false)
+                .build();
+
+        entityManager.persist(todo);
+        entityManager.flush();
+        entityManager.clear();
+
+        // when
+        int updated = todoRepository.updateFields(todo.getId(), Map.of("completed", true), 0L);
+        int stale = todoRepository.updateFields(todo.getId(), Map.of("title", "Lost Update"), 0L);
+        int missing = todoRepository.updateFields(-1L, Map.of("completed", true), null);
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(stale).isZero();
+        assertThat(missing).isZero();
+        entityManager.clear();
+        Todo reloaded = todoRepository.findById(todo.getId()).orElseThrow();
+        assertThat(reloaded.isCompleted()).isTrue();
+        assertThat(reloaded.getTitle()).isEqualTo("Todo");
+        assertThat(reloaded.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testDeleteTodoById() {
+        // given
+        Todo todo = Todo.builder().title("Todo").description("Description").completed(false).build();
+        entityManager.persist(todo);
+        entityManager.flush();
+
+        // when
+        int deleted = todoRepository.deleteTodoById(todo.getId());
+        int missing = todoRepository.deleteTodoById(todo.getId());
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(missing).isZero();
+    }
+
+    @Test
+    public void testFindIdsByIdIn() {
+        // given
+        Todo todo = Todo.builder().title("Todo 1").description("Description 1").completed(false).build();
+        entityManager.persist(todo);
+        entityManager.flush();
+
+        // when
+        List<Long> ids = todoRepository.findIdsByIdIn(Arrays.asList(todo.getId(), -1L));
+
+        // then
+        assertThat(ids).containsExactly(todo.getId());
+    }
+
+    @Test
+    public void testFindIdsByCompleted() {
+        // given
+        Todo open = Todo.builder().title("Open").description("Description").completed(false).build();
+        Todo done = Todo.builder().title("Done").description("Description").completed(true).build();
+        entityManager.persist(open);
+        entityManager.persist(done);
+        entityManager.flush();
+
+        // when
+        List<Long> ids = todoRepository.findIdsByCompleted(true);
+
+        // then
+        assertThat(ids).containsExactly(done.getId());
+    }
+
+    @Test
+    public void testDeleteByCompleted() {
+        // given
+        Todo open = Todo.builder().title("Open").description("Description").completed(false).build();
+        Todo done = Todo.builder().title("Done").description("Description").completed(true).build();
+        entityManager.persist(open);
+        entityManager.persist(done);
+        entityManager.flush();
+        entityManager.clear();
+
+        // when
+        int deleted = todoRepository.deleteByCompleted(true);
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(todoRepository.findAll()).extracting(Todo::getTitle).containsExactly("Open");
+    }
+
+    @Test
+    public void testFilteredFinders() {
+        // given
+        Todo buyMilk = Todo.builder().title("Buy milk").description("Description").completed(true).build();
+        Todo buyBread = Todo.builder().title("Buy bread").description("Description").completed(false).build();
+        Todo call = Todo.builder().title("Call home").description("Description").completed(true).build();
+        Todo buyEggs = Todo.builder().title("Buy eggs").description("Description").completed(true).build();
+        entityManager.persist(buyMilk);
+        entityManager.persist(buyBread);
+        entityManager.persist(call);
+        entityManager.persist(buyEggs);
+        entityManager.flush();
+
+        PageRequest byTitle = PageRequest.of(0, 10, Sort.by("title"));
+
+        // when
+        List<Todo> completed = todoRepository.findByCompleted(true, byTitle);
+        List<Todo> buy = todoRepository.findByTitleStartingWith("Buy", byTitle);
+        List<Todo> completedBuy = todoRepository.findByCompletedAndTitleStartingWith(true, "Buy", PageRequest.of(0, 1, Sort.by("title")));
+        List<Todo> newest = todoRepository.findAllBy(PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")));
+
+        // then
+        assertThat(completed).extracting(Todo::getTitle).containsExactly("Buy eggs", "Buy milk", "Call home");
+        assertThat(buy).extracting(Todo::getTitle).containsExactly("Buy bread", "Buy eggs", "Buy milk");
+        assertThat(completedBuy).extracting(Todo::getTitle).containsExactly("Buy eggs");
+        assertThat(newest).extracting(Todo::getTitle).containsExactly("Buy eggs", "Call home");
+    }
+
+    @Test
+    public void testTitlePrefixIsNotAPattern() {
+        // given
+        entityManager.persist(Todo.builder().title("100% done").description("Description").completed(false).build());
+        entityManager.persist(Todo.builder().title("1000 things").description("Description").completed(false).build());
+        entityManager.flush();
+
+        // when
+        List<Todo> todos = todoRepository.findByTitleStartingWith("100%", PageRequest.of(0, 10));
+
+        // then
+        assertThat(todos).extracting(Todo::getTitle).containsExactly("100% done");
+    }
+
     @Test
     public void testDelete() {
         // given
@@ -107,4 +324,29 @@ public class TodoRepositoryTest {
         Optional<Todo> deleted = todoRepository.findById(todo.getId());
         assertThat(deleted).isEmpty();
     }
+
+    @Test
+    public void testSave_StaleVersionRejected() {
+        // given
+        Todo todo = Todo.builder()
+                .title("Versioned Todo")
+                .description("Description")
+                .completed(false)
+                .build();
+
+        entityManager.persist(todo);
+        entityManager.flush();
+        Todo stale = todo.toBuilder().build();
+
+        todo.setCompleted(true);
+        entityManager.flush();
+        entityManager.clear();
+
+        // when / then
+        stale.setTitle("Lost Update");
+        assertThatThrownBy(() -> todoRepository.saveAndFlush(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(todoRepository.findById(todo.getId())).get()
+                .extracting(Todo::getVersion).isEqualTo(1L);
+    }
 }
@@ -0,0 +1,86 @@
+package com.example.service;
+
+import com.example.entity.Todo;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CaffeineTodoCacheTest {
+
+    private final CaffeineTodoCache cache = new CaffeineTodoCache(100);
+
+    @Test
+    void testLoadsOnceAndServesHits() {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+        Todo todo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+
+        // when
+        cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(todo);
+        });
+        Optional<Todo> second = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(todo);
+        });
+
+        // then
+        assertThat(loads).hasValue(1);
+        assertThat(second).contains(todo);
+        assertThat(cache.nativeCache().stats().hitCount()).isEqualTo(1);
+        assertThat(cache.nativeCache().stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testMissingTodosAreNotCached() {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        Optional<Todo> second = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        // then
+        assertThat(second).isEmpty();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void testCallersGetIsolatedCopies() {
+        // given
+        Todo todo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo first = cache.get(1L, id -> Optional.of(todo)).orElseThrow();
+
+        // when
+        first.setTitle("Changed but not saved");
+        todo.setTitle("Changed by the loader's owner");
+
+        // then
+        assertThat(cache.get(1L, id -> Optional.empty())).map(Todo::getTitle).contains("Todo 1");
+    }
+
+    @Test
+    void testInvalidateForcesReload() {
+        // given
+        Todo stale = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo fresh = Todo.builder().id(1L).title("Todo 1 updated").description("Description 1").completed(true).build();
+        cache.get(1L, id -> Optional.of(stale));
+
+        // when
+        cache.invalidate(1L);
+        Optional<Todo> reloaded = cache.get(1L, id -> Optional.of(fresh));
+
+        // then
+        assertThat(reloaded).map(Todo::getTitle).contains("Todo 1 updated");
+    }
+}
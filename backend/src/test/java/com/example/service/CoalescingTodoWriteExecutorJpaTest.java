@@ -0,0 +1,91 @@
+package com.example.service;
+
+import com.example.entity.Todo;
+import com.example.repository.TodoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The writer thread commits for real, so the test must not hold a transaction of its own
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CoalescingTodoWriteExecutorJpaTest {
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void testSameRowUpdatesInOneBatchConflict() throws Exception {
+        // given
+        Todo original = todoRepository.save(Todo.builder().title("original").description("Description").build());
+        TodoService todoService = new TodoService(todoRepository);
+        CoalescingTodoWriteExecutor executor =
+                new CoalescingTodoWriteExecutor(transactionManager, entityManager, 64, Duration.ZERO);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            executor.submit(() -> {
+                started.countDown();
+                await(release);
+                return null;
+            });
+            await(started);
+            // Both callers read version 0 before writing, as two concurrent REST updates would
+            CompletableFuture<Todo> first = executor.submit(() ->
+                    todoService.updateTodo(original.toBuilder().title("from caller 1").build()));
+            CompletableFuture<Todo> second = executor.submit(() ->
+                    todoService.updateTodo(original.toBuilder().title("from caller 2").build()));
+
+            // when
+            release.countDown();
+
+            // then
+            Todo updated = first.get(5, TimeUnit.SECONDS);
+            assertThat(updated.getTitle()).isEqualTo("from caller 1");
+            assertThat(updated.getVersion()).isEqualTo(1L);
+            assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(OptimisticLockingFailureException.class);
+            Todo stored = todoRepository.findById(original.getId()).orElseThrow();
+            assertThat(stored.getTitle()).isEqualTo("from caller 1");
+            assertThat(stored.getVersion()).isEqualTo(1L);
+        } finally {
+            executor.destroy();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
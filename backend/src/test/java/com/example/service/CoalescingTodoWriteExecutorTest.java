@@ -0,0 +1,127 @@
+package com.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class CoalescingTodoWriteExecutorTest {
+
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+    private final CoalescingTodoWriteExecutor executor =
+            new CoalescingTodoWriteExecutor(transactionManager, mock(EntityManager.class), 64, Duration.ZERO);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.destroy();
+    }
+
+    @Test
+    void testConcurrentWritesShareOneTransaction() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> blocker = executor.submit(() -> {
+            started.countDown();
+            await(release);
+            return "first";
+        });
+        await(started);
+        List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int value = i;
+            queued.add(executor.submit(() -> value));
+        }
+
+        // when
+        release.countDown();
+
+        // then
+        assertThat(blocker.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        for (int i = 0; i < 5; i++) {
+            assertThat(queued.get(i).get(5, TimeUnit.SECONDS)).isEqualTo(i);
+        }
+        assertThat(transactionManager.commits.get()).isEqualTo(2);
+        assertThat(transactionManager.rollbacks.get()).isZero();
+    }
+
+    @Test
+    void testFailingWriteOnlyFailsItsOwnCaller() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            await(release);
+            return 0;
+        });
+        await(started);
+        CompletableFuture<Integer> before = executor.submit(() -> 1);
+        CompletableFuture<Integer> failing = executor.submit(() -> {
+            throw new OptimisticLockingFailureException("stale");
+        });
+        CompletableFuture<Integer> after = executor.submit(() -> 3);
+
+        // when
+        release.countDown();
+
+        // then
+        assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(after.get(5, TimeUnit.SECONDS)).isEqualTo(3);
+        assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(OptimisticLockingFailureException.class);
+        // The blocker committed alone; the batch rolled back once, then each write ran in its own transaction
+        assertThat(transactionManager.rollbacks.get()).isEqualTo(2);
+        assertThat(transactionManager.commits.get()).isEqualTo(3);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class CountingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commits.incrementAndGet();
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks.incrementAndGet();
+        }
+    }
+}
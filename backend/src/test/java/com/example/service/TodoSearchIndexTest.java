@@ -0,0 +1,135 @@
+package com.example.service;
+
+import com.example.entity.Todo;
+import com.example.store.TodoStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TodoSearchIndexTest {
+
+    private final TodoSearchIndex index = new TodoSearchIndex();
+
+    @Test
+    void testMatchesAllTokensAndRanksTitleHitsFirst() {
+        // given
+        index.index(todo(1L, "Groceries", "Buy milk and bread"));
+        index.index(todo(2L, "Buy milk", "From the corner shop"));
+        index.index(todo(3L, "Bread", "Bake it"));
+
+        // when
+        TodoSearchIndex.Hits hits = index.search("MILK, buy!", 0, 10);
+
+        // then
+        assertThat(hits.getTotal()).isEqualTo(2);
+        assertThat(hits.getIds()).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void testPagesThroughRankedHits() {
+        // given
+        for (long id = 1; id <= 5; id++) {
+            index.index(todo(id, "Task " + id, "shared"));
+        }
+
+        // when
+        TodoSearchIndex.Hits first = index.search("shared", 0, 2);
+        TodoSearchIndex.Hits last = index.search("shared", 4, 2);
+
+        // then
+        assertThat(first.getIds()).containsExactly(1L, 2L);
+        assertThat(last.getIds()).containsExactly(5L);
+        assertThat(last.getTotal()).isEqualTo(5);
+    }
+
+    @Test
+    void testFollowsUpdatesAndDeletes() {
+        // given
+        index.index(todo(1L, "Call home", ""));
+
+        // when
+        index.onTodoChanged(TodoChangeEvent.updated(todo(1L, "Call office", "")));
+
+        // then
+        assertThat(index.search("home", 0, 10).getIds()).isEmpty();
+        assertThat(index.search("office", 0, 10).getIds()).containsExactly(1L);
+
+        // when
+        index.onTodoChanged(TodoChangeEvent.deleted(1L));
+
+        // then
+        assertThat(index.search("call", 0, 10).getTotal()).isZero();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void testIgnoresChangesOlderThanWhatIsIndexed() {
+        // given
+        index.onTodoChanged(TodoChangeEvent.updated(todo(1L, "Call office", "").toBuilder().version(2L).build()));
+        index.onTodoChanged(TodoChangeEvent.created(todo(2L, "Call home", "").toBuilder().version(0L).build()));
+        index.onTodoChanged(TodoChangeEvent.deleted(2L));
+
+        // when
+        index.onTodoChanged(TodoChangeEvent.updated(todo(1L, "Call home", "").toBuilder().version(1L).build()));
+        index.onTodoChanged(TodoChangeEvent.updated(todo(2L, "Call home", "").toBuilder().version(1L).build()));
+
+        // then
+        assertThat(index.search("office", 0, 10).getIds()).containsExactly(1L);
+        assertThat(index.search("home", 0, 10).getIds()).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testForgetsOldDeletions() {
+        // given
+        index.onTodoChanged(TodoChangeEvent.deleted(1L));
+        for (long id = 2; id <= TodoSearchIndex.DELETE_MARKERS + 1; id++) {
+            index.onTodoChanged(TodoChangeEvent.deleted(id));
+        }
+
+        // when
+        index.onTodoChanged(TodoChangeEvent.updated(todo(1L, "Call home", "").toBuilder().version(1L).build()));
+        index.onTodoChanged(TodoChangeEvent.updated(todo(2L, "Call home", "").toBuilder().version(1L).build()));
+
+        // then
+        // Only the most recent deletions keep a marker
+        assertThat(index.search("home", 0, 10).getIds()).containsExactly(1L);
+    }
+
+    @Test
+    void testBlankQueryMatchesNothing() {
+        // given
+        index.index(todo(1L, "Anything", ""));
+
+        // when
+        TodoSearchIndex.Hits hits = index.search("  ?! ", 0, 10);
+
+        // then
+        assertThat(hits.getIds()).isEmpty();
+        assertThat(hits.getTotal()).isZero();
+    }
+
+    @Test
+    void testLoadsFromStoreInChunks() {
+        // given
+        TodoStore todoStore = mock(TodoStore.class);
+        when(todoStore.findAfter(0L, 1000))
+                .thenReturn(Arrays.asList(todo(1L, "First", ""), todo(2L, "Second", "")));
+        TodoSearchIndex loaded = new TodoSearchIndex(todoStore);
+
+        // when
+        loaded.load();
+
+        // then
+        assertThat(loaded.size()).isEqualTo(2);
+        assertThat(loaded.search("second", 0, 10).getIds()).containsExactly(2L);
+    }
+
+    private static Todo todo(Long id, String title, String description) {
+        return Todo.builder().id(id).title(title).description(description).completed(false).build();
+    }
+}
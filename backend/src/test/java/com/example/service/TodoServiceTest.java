@@ -5,14 +5,27 @@ import com.example.repository.TodoRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -22,6 +35,9 @@ public class TodoServiceTest {
     @Mock
     private TodoRepository todoRepository;
 
+    @Mock
+    private TodoChangeListener changeListener;
+
     private TodoService todoService;
 
     @BeforeEach
@@ -46,6 +62,21 @@ public class TodoServiceTest {
         verify(todoRepository, times(1)).findAll();
     }
 
+    @Test
+    void testGetTodosAfter() {
+        // given
+        Todo todo = Todo.builder().id(3L).title("Todo 3").description("Description 3").completed(false).build();
+        when(todoRepository.findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 10)))
+                .thenReturn(Arrays.asList(todo));
+
+        // when
+        List<Todo> todos = todoService.getTodosAfter(2L, 10);
+
+        // then
+        assertThat(todos).extracting(Todo::getId).containsExactly(3L);
+        verify(todoRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 10));
+    }
+
     @Test
     void testGetTodoById() {
         // given
@@ -91,6 +122,118 @@ public class TodoServiceTest {
         verify(todoRepository, times(1)).save(todoToCreate);
     }
 
+    @Test
+    void testCreateTodos() {
+        // given
+        List<Todo> todosToCreate = Arrays.asList(
+                Todo.builder().title("Todo 1").description("Description 1").completed(false).build(),
+                Todo.builder().title("Todo 2").description("Description 2").completed(true).build());
+        List<Todo> savedTodos = Arrays.asList(
+                Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build(),
+                Todo.builder().id(2L).title("Todo 2").description("Description 2").completed(true).build());
+
+        when(todoRepository.saveAll(todosToCreate)).thenReturn(savedTodos);
+
+        // when
+        List<Todo> created = todoService.createTodos(todosToCreate);
+
+        // then
+        assertThat(created).extracting(Todo::getId).containsExactly(1L, 2L);
+        verify(todoRepository, times(1)).saveAll(todosToCreate);
+        verify(todoRepository, never()).save(any(Todo.class));
+    }
+
+    @Test
+    void testImportTodos() {
+        // given
+        List<Todo> chunk = Arrays.asList(
+                Todo.builder().title("Todo 1").description("Description 1").completed(false).build(),
+                Todo.builder().title("Todo 2").description("Description 2").completed(true).build());
+        when(todoRepository.saveAll(chunk)).thenReturn(chunk);
+
+        // when
+        List<Todo> imported = todoService.importTodos(chunk);
+
+        // then
+        assertThat(imported).hasSize(2);
+        InOrder inOrder = inOrder(todoRepository);
+        inOrder.verify(todoRepository).saveAll(chunk);
+        inOrder.verify(todoRepository).flush();
+        inOrder.verify(todoRepository).clearPersistenceContext();
+    }
+
+    @Test
+    void testGetTodosByIds() {
+        // given
+        Todo todo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        when(todoRepository.findAllById(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(todo));
+
+        // when
+        List<Todo> found = todoService.getTodosByIds(Arrays.asList(1L, 2L));
+
+        // then
+        assertThat(found).extracting(Todo::getId).containsExactly(1L);
+        verify(todoRepository, times(1)).findAllById(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    void testDeleteTodos() {
+        // given
+        when(todoRepository.findIdsByIdIn(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(1L, 2L));
+        when(todoRepository.deleteByIdIn(Arrays.asList(1L, 2L))).thenReturn(2);
+
+        // when
+        int deleted = todoService.deleteTodos(Arrays.asList(1L, 2L));
+
+        // then
+        assertThat(deleted).isEqualTo(2);
+        verify(todoRepository, times(1)).deleteByIdIn(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    void testDeleteTodos_PublishesOnlyDeletedIds() {
+        // given
+        TodoService notifyingService = new TodoService(todoRepository, TodoCache.none(), Collections.singletonList(changeListener));
+        when(todoRepository.findIdsByIdIn(Arrays.asList(1L, 99L))).thenReturn(Collections.singletonList(1L));
+        when(todoRepository.deleteByIdIn(Collections.singletonList(1L))).thenReturn(1);
+
+        // when
+        int deleted = notifyingService.deleteTodos(Arrays.asList(1L, 99L));
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        verify(changeListener).onTodoChanged(TodoChangeEvent.deleted(1L));
+        verifyNoMoreInteractions(changeListener);
+    }
+
+    @Test
+    void testDeleteTodos_Empty() {
+        // when
+        int deleted = todoService.deleteTodos(Collections.emptyList());
+
+        // then
+        assertThat(deleted).isZero();
+        verifyNoInteractions(todoRepository);
+    }
+
+    @Test
+    void testDeleteTodosByCompleted() {
+        // given
+        TodoService notifyingService = new TodoService(todoRepository, TodoCache.none(), Collections.singletonList(changeListener));
+        when(todoRepository.findIdsByCompleted(true)).thenReturn(Arrays.asList(1L, 2L));
+        when(todoRepository.deleteByCompleted(true)).thenReturn(2);
+
+        // when
+        int deleted = notifyingService.deleteTodosByCompleted(true);
+
+        // then
+        assertThat(deleted).isEqualTo(2);
+        verify(todoRepository).deleteByCompleted(true);
+        verify(todoRepository, never()).deleteByIdIn(any());
+        verify(changeListener).onTodoChanged(TodoChangeEvent.deleted(1L));
+        verify(changeListener).onTodoChanged(TodoChangeEvent.deleted(2L));
+    }
+
     @Test
     void testUpdateTodo() {
         // given
@@ -107,31 +250,208 @@ public class TodoServiceTest {
     }
 
     @Test
-    void testDeleteTodo_Success() {
+    void testUpdateTodoFields() {
         // given
+        Todo updated = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(true).version(2L).build();
+        Map<String, Object> values = Collections.singletonMap("completed", true);
+        when(todoRepository.updateFields(1L, values, null)).thenReturn(1);
+        when(todoRepository.findById(1L)).thenReturn(Optional.of(updated));
+
+        // when
+        Optional<Todo> result = todoService.updateTodoFields(1L, values, null);
+
+        // then
+        assertThat(result).contains(updated);
+        verify(todoRepository, never()).save(any(Todo.class));
+    }
+
+    @Test
+    void testUpdateTodoFields_NotFound() {
+        // given
+        Map<String, Object> values = Collections.singletonMap("completed", true);
+        when(todoRepository.updateFields(1L, values, 3L)).thenReturn(0);
+        when(todoRepository.existsById(1L)).thenReturn(false);
+
+        // when
+        Optional<Todo> result = todoService.updateTodoFields(1L, values, 3L);
+
+        // then
+        assertThat(result).isEmpty();
+        verify(todoRepository, never()).findById(1L);
+    }
+
+    @Test
+    void testUpdateTodoFields_StaleVersion() {
+        // given
+        Map<String, Object> values = Collections.singletonMap("completed", true);
+        when(todoRepository.updateFields(1L, values, 3L)).thenReturn(0);
         when(todoRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(todoRepository).deleteById(1L);
+
+        // when / then
+        assertThatThrownBy(() -> todoService.updateTodoFields(1L, values, 3L))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void testDeleteTodo_Success() {
+        // given
+        when(todoRepository.deleteTodoById(1L)).thenReturn(1);
 
         // when
         boolean result = todoService.deleteTodo(1L);
 
         // then
         assertThat(result).isTrue();
-        verify(todoRepository, times(1)).existsById(1L);
-        verify(todoRepository, times(1)).deleteById(1L);
+        verify(todoRepository, times(1)).deleteTodoById(1L);
+        verify(todoRepository, never()).existsById(1L);
     }
 
     @Test
     void testDeleteTodo_NotFound() {
         // given
-        when(todoRepository.existsById(1L)).thenReturn(false);
+        when(todoRepository.deleteTodoById(1L)).thenReturn(0);
 
         // when
         boolean result = todoService.deleteTodo(1L);
 
         // then
         assertThat(result).isFalse();
-        verify(todoRepository, times(1)).existsById(1L);
-        verify(todoRepository, never()).deleteById(1L);
+        verify(todoRepository, times(1)).deleteTodoById(1L);
+    }
+
+    @Test
+    void testMutationsBumpVersion() {
+        // given
+        Todo savedTodo = Todo.builder().id(1L).title("New Todo").description("New Description").completed(false).build();
+        when(todoRepository.save(any(Todo.class))).thenReturn(savedTodo);
+        when(todoRepository.deleteTodoById(1L)).thenReturn(0);
+        long before = todoService.getMutationVersion();
+
+        // when
+        todoService.createTodo(Todo.builder().title("New Todo").description("New Description").build());
+        todoService.deleteTodo(1L);
+
+        // then
+        assertThat(todoService.getMutationVersion()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void testMutationsNotifyListeners() {
+        // given
+        TodoService notifyingService = new TodoService(todoRepository, TodoCache.none(), Collections.singletonList(changeListener));
+        Todo savedTodo = Todo.builder().id(1L).title("New Todo").description("New Description").completed(false).build();
+        when(todoRepository.save(any(Todo.class))).thenReturn(savedTodo);
+        when(todoRepository.deleteTodoById(1L)).thenReturn(1);
+
+        // when
+        notifyingService.createTodo(Todo.builder().title("New Todo").description("New Description").build());
+        notifyingService.updateTodo(savedTodo);
+        notifyingService.deleteTodo(1L);
+
+        // then
+        InOrder inOrder = inOrder(changeListener);
+        inOrder.verify(changeListener).onTodoChanged(TodoChangeEvent.created(savedTodo));
+        inOrder.verify(changeListener).onTodoChanged(TodoChangeEvent.updated(savedTodo));
+        inOrder.verify(changeListener).onTodoChanged(TodoChangeEvent.deleted(1L));
+    }
+
+    @Test
+    void testFailingListenerDoesNotFailWrite() {
+        // given
+        TodoService notifyingService = new TodoService(todoRepository, TodoCache.none(), Collections.singletonList(changeListener));
+        Todo savedTodo = Todo.builder().id(1L).title("New Todo").description("New Description").completed(false).build();
+        when(todoRepository.save(any(Todo.class))).thenReturn(savedTodo);
+        doThrow(new IllegalStateException("boom")).when(changeListener).onTodoChanged(any(TodoChangeEvent.class));
+
+        // when
+        Todo created = notifyingService.createTodo(savedTodo);
+
+        // then
+        assertThat(created).isSameAs(savedTodo);
+    }
+
+    @Test
+    void testGetTodoById_ServedFromCacheUntilUpdated() {
+        // given
+        TodoService cachingService = new TodoService(todoRepository, new CaffeineTodoCache(100), Collections.emptyList());
+        Todo todo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        Todo updated = Todo.builder().id(1L).title("Todo 1 updated").description("Description 1").completed(true).build();
+        when(todoRepository.findById(1L)).thenReturn(Optional.of(todo), Optional.of(updated));
+        when(todoRepository.save(any(Todo.class))).thenReturn(updated);
+
+        // when
+        cachingService.getTodoById(1L);
+        Optional<Todo> cached = cachingService.getTodoById(1L);
+        cachingService.updateTodo(updated);
+        Optional<Todo> afterUpdate = cachingService.getTodoById(1L);
+
+        // then
+        assertThat(cached).map(Todo::getTitle).contains("Todo 1");
+        assertThat(afterUpdate).map(Todo::getTitle).contains("Todo 1 updated");
+        verify(todoRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testGetTodoById_CacheHitSkipsLoader() {
+        // given
+        TodoService cachingService = new TodoService(todoRepository, new CaffeineTodoCache(100), Collections.emptyList());
+        Todo todo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        when(todoRepository.findById(1L)).thenReturn(Optional.of(todo));
+        AtomicInteger loads = new AtomicInteger();
+        Function<Supplier<Optional<Todo>>, Optional<Todo>> load = read -> {
+            loads.incrementAndGet();
+            return read.get();
+        };
+
+        // when
+        cachingService.getTodoById(1L, load);
+        Optional<Todo> cached = cachingService.getTodoById(1L, load);
+
+        // then
+        assertThat(cached).map(Todo::getTitle).contains("Todo 1");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void testDeleteTodo_InvalidatesCache() {
+        // given
+        TodoService cachingService = new TodoService(todoRepository, new CaffeineTodoCache(100), Collections.emptyList());
+        Todo todo = Todo.builder().id(1L).title("Todo 1").description("Description 1").completed(false).build();
+        when(todoRepository.findById(1L)).thenReturn(Optional.of(todo), Optional.empty());
+        when(todoRepository.deleteTodoById(1L)).thenReturn(1);
+
+        // when
+        cachingService.getTodoById(1L);
+        cachingService.deleteTodo(1L);
+        Optional<Todo> afterDelete = cachingService.getTodoById(1L);
+
+        // then
+        assertThat(afterDelete).isEmpty();
+    }
+
+    @Test
+    void testUpdateTodo_InvalidatesCacheAfterCommit() throws Exception {
+        // given
+        TodoService cachingService = new TodoService(todoRepository, new CaffeineTodoCache(100), Collections.emptyList());
+        Todo todo = Todo.builder().id(1L).title("old").description("Description 1").completed(false).version(0L).build();
+        Todo updated = todo.toBuilder().title("new").version(1L).build();
+        // Until the commit, other connections still read the old row
+        when(todoRepository.findById(1L)).thenReturn(Optional.of(todo), Optional.of(updated));
+        when(todoRepository.save(any(Todo.class))).thenReturn(updated);
+
+        // when
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cachingService.updateTodo(updated);
+            Optional<Todo> concurrentRead = CompletableFuture.supplyAsync(() -> cachingService.getTodoById(1L))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(concurrentRead).map(Todo::getTitle).contains("old");
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // then
+        assertThat(cachingService.getTodoById(1L)).map(Todo::getTitle).contains("new");
     }
 }
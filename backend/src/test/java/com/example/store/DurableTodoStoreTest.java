@@ -0,0 +1,161 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DurableTodoStoreTest {
+
+    private static final long NO_SNAPSHOTS = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWritesSurviveReopen() throws IOException {
+        // given
+        try (DurableTodoStore store = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+            store.saveAll(Arrays.asList(todo("A", "a"), todo("B", null), todo("C", "c")));
+            store.save(store.findById(1L).orElseThrow().toBuilder().title("A2").build());
+            assertThat(store.updateFields(2L, Collections.singletonMap("completed", true), null))
+                    .get().extracting(Todo::isCompleted, Todo::getVersion).containsExactly(true, 1L);
+            store.deleteById(3L);
+        }
+
+        // when
+        try (DurableTodoStore reopened = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+
+            // then
+            List<Todo> todos = reopened.findAll();
+            assertThat(todos).extracting(Todo::getTitle).containsExactly("A2", "B");
+            assertThat(todos).extracting(Todo::getVersion).containsExactly(1L, 1L);
+            assertThat(todos.get(1).getDescription()).isNull();
+            assertThat(todos.get(1).isCompleted()).isTrue();
+            // The deleted id stays used
+            assertThat(reopened.save(todo("D", "d")).getId()).isEqualTo(4L);
+        }
+    }
+
+    @Test
+    void testSnapshotReplacesOlderLogs() throws IOException {
+        // given
+        try (DurableTodoStore store = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+            store.saveAll(Arrays.asList(todo("A", "a"), todo("B", "b")));
+            store.snapshot();
+            store.deleteById(1L);
+            store.save(todo("C", "c"));
+        }
+
+        // when
+        try (DurableTodoStore reopened = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+
+            // then
+            assertThat(files()).contains("snapshot-2.dat", "log-2.wal").doesNotContain("log-1.wal");
+            assertThat(reopened.findAll()).extracting(Todo::getTitle).containsExactly("B", "C");
+        }
+    }
+
+    @Test
+    void testSnapshotsWhenLogGrowsPastThreshold() throws IOException, InterruptedException {
+        // given
+        try (DurableTodoStore store = DurableTodoStore.open(directory, Duration.ofMillis(10), 1024)) {
+
+            // when
+            for (int i = 0; i < 100; i++) {
+                store.save(todo("Todo " + i, "Description " + i));
+            }
+            for (int i = 0; i < 100 && files().noneMatch(name -> name.startsWith("snapshot-")); i++) {
+                Thread.sleep(20);
+            }
+        }
+
+        // then
+        assertThat(files()).anyMatch(name -> name.startsWith("snapshot-"));
+        try (DurableTodoStore reopened = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+            assertThat(reopened.findAll()).hasSize(100);
+        }
+    }
+
+    @Test
+    void testTornTailIsDropped() throws IOException {
+        // given
+        try (DurableTodoStore store = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+            store.save(todo("A", "a"));
+        }
+        Path log = directory.resolve("log-1.wal");
+        long intact = Files.size(log);
+        Files.write(log, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        // when
+        try (DurableTodoStore reopened = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+
+            // then
+            assertThat(Files.size(log)).isEqualTo(intact);
+            assertThat(reopened.findAll()).extracting(Todo::getTitle).containsExactly("A");
+            assertThat(reopened.save(todo("B", "b")).getId()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    void testDeleteByCompletedSurvivesReopen() throws IOException {
+        // given
+        try (DurableTodoStore store = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+            store.saveAll(Arrays.asList(todo("A", "a"), todo("B", "b"), todo("C", "c")));
+            store.updateFields(2L, Collections.singletonMap("completed", true), null);
+
+            // when
+            assertThat(store.deleteByCompleted(false)).containsExactly(1L, 3L);
+        }
+
+        // then
+        try (DurableTodoStore reopened = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+            assertThat(reopened.findAll()).extracting(Todo::getTitle).containsExactly("B");
+        }
+    }
+
+    @Test
+    void testFailedAppendLeavesStoreUnchanged() throws IOException {
+        // given
+        DurableTodoStore store = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS);
+        Todo saved = store.save(todo("A", "a"));
+        // Closing the log makes the next append fail
+        store.close();
+
+        // when
+        assertThatThrownBy(() -> store.save(saved.toBuilder().title("A2").build()))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        // then
+        assertThat(store.findById(saved.getId())).get().extracting(Todo::getTitle, Todo::getVersion).containsExactly("A", 0L);
+        assertThatThrownBy(() -> store.deleteById(saved.getId())).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(store.existsById(saved.getId())).isTrue();
+        try (DurableTodoStore reopened = DurableTodoStore.open(directory, Duration.ZERO, NO_SNAPSHOTS)) {
+            assertThat(reopened.findAll()).extracting(Todo::getTitle).containsExactly("A");
+        }
+    }
+
+    private Stream<String> files() throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.map(path -> path.getFileName().toString()).collect(Collectors.toList()).stream();
+        }
+    }
+
+    private static Todo todo(String title, String description) {
+        return Todo.builder().title(title).description(description).completed(false).build();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+import com.example.service.TodoCache;
+import com.example.service.TodoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InMemoryTodoStoreTest {
+
+    private InMemoryTodoStore todoStore;
+    private TodoService todoService;
+
+    @BeforeEach
+    void setUp() {
+        todoStore = new InMemoryTodoStore();
+        todoService = new TodoService(todoStore, TodoCache.none(), Collections.emptyList());
+    }
+
+    @Test
+    void testCreateAndGetTodo() {
+        // given
+        Todo created = todoService.createTodo(todo("Todo 1", "Description 1", false));
+
+        // when
+        Optional<Todo> found = todoService.getTodoById(created.getId());
+
+        // then
+        assertThat(created.getId()).isEqualTo(1L);
+        assertThat(created.getVersion()).isZero();
+        assertThat(found).contains(created);
+        assertThat(todoService.getTodoById(99L)).isEmpty();
+    }
+
+    @Test
+    void testCreateTodosAssignsAscendingIds() {
+        // when
+        List<Todo> saved = todoService.createTodos(Arrays.asList(todo("A", "a", false), todo("B", "b", true)));
+
+        // then
+        assertThat(saved).extracting(Todo::getId).containsExactly(1L, 2L);
+        assertThat(todoService.getAllTodos()).extracting(Todo::getTitle).containsExactly("A", "B");
+    }
+
+    @Test
+    void testGetTodosAfterSkipsDeleted() {
+        // given
+        todoService.importTodos(Arrays.asList(todo("1", null, false), todo("2", null, false), todo("3", null, false)));
+        todoService.deleteTodo(2L);
+
+        // when
+        List<Todo> todos = todoService.getTodosAfter(1L, 10);
+
+        // then
+        assertThat(todos).extracting(Todo::getId).containsExactly(3L);
+    }
+
+    @Test
+    void testUpdateTodoBumpsVersion() {
+        // given
+        Todo created = todoService.createTodo(todo("Todo 1", "Description 1", false));
+
+        // when
+        Todo updated = todoService.updateTodo(created.toBuilder().title("Renamed").completed(true).build());
+
+        // then
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(todoService.getTodoById(created.getId())).contains(updated);
+        assertThatThrownBy(() -> todoService.updateTodo(created.toBuilder().title("Stale").build()))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void testUpdateTodoFields() {
+        // given
+        Todo created = todoService.createTodo(todo("Todo 1", "Description 1", false));
+        Map<String, Object> values = new HashMap<>();
+        values.put("description", null);
+        values.put("completed", true);
+
+        // when
+        Optional<Todo> updated = todoService.updateTodoFields(created.getId(), values, 0L);
+
+        // then
+        assertThat(updated).hasValueSatisfying(todo -> {
+            assertThat(todo.getTitle()).isEqualTo("Todo 1");
+            assertThat(todo.getDescription()).isNull();
+            assertThat(todo.isCompleted()).isTrue();
+            assertThat(todo.getVersion()).isEqualTo(1L);
+        });
+        assertThatThrownBy(() -> todoService.updateTodoFields(created.getId(), values, 0L))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(todoService.updateTodoFields(99L, values, null)).isEmpty();
+    }
+
+    @Test
+    void testDeleteTodos() {
+        // given
+        todoService.createTodos(Arrays.asList(todo("A", "a", true), todo("B", "b", false), todo("C", "c", true)));
+
+        // when
+        int deleted = todoService.deleteTodosByCompleted(true);
+
+        // then
+        assertThat(deleted).isEqualTo(2);
+        assertThat(todoService.getAllTodos()).extracting(Todo::getTitle).containsExactly("B");
+        assertThat(todoService.deleteTodo(1L)).isFalse();
+        assertThat(todoService.deleteTodos(Arrays.asList(2L, 3L))).isEqualTo(1);
+    }
+
+    @Test
+    void testListTodos() {
+        // given
+        todoService.createTodos(Arrays.asList(
+                todo("Buy milk", null, false),
+                todo("Buy eggs", null, true),
+                todo("Café", null, false),
+                todo("Bake", null, false)));
+
+        // then
+        assertThat(todoService.listTodos(null, "Buy", Sort.by("title"), 10))
+                .extracting(Todo::getTitle).containsExactly("Buy eggs", "Buy milk");
+        assertThat(todoService.listTodos(false, "B", Sort.by(Sort.Order.desc("id")), 10))
+                .extracting(Todo::getTitle).containsExactly("Bake", "Buy milk");
+        assertThat(todoService.listTodos(null, "Caf", Sort.by("id"), 10))
+                .extracting(Todo::getTitle).containsExactly("Café");
+        assertThat(todoService.listTodos(null, null, Sort.by("title", "id"), 2))
+                .extracting(Todo::getTitle).containsExactly("Bake", "Buy eggs");
+    }
+
+    @Test
+    void testSurvivesChurnPastCompaction() {
+        // given
+        String description = String.join("", Collections.nCopies(1000, "x"));
+        List<Todo> todos = IntStream.range(0, 5000)
+                .mapToObj(i -> todo("Todo " + i, description, false))
+                .collect(Collectors.toList());
+        List<Long> ids = todoStore.saveAll(todos).stream().map(Todo::getId).collect(Collectors.toList());
+
+        // when
+        todoStore.deleteAllById(ids.subList(0, 4000));
+        for (Long id : ids.subList(4000, 4100)) {
+            todoStore.updateFields(id, Collections.singletonMap("title", "Renamed " + id), null);
+        }
+
+        // then
+        assertThat(todoStore.findAll()).hasSize(1000);
+        assertThat(todoStore.findById(ids.get(4000))).hasValueSatisfying(todo -> {
+            assertThat(todo.getTitle()).isEqualTo("Renamed " + ids.get(4000));
+            assertThat(todo.getDescription()).isEqualTo(description);
+        });
+        assertThat(todoStore.findAfter(0, 1)).extracting(Todo::getId).containsExactly(ids.get(4000));
+        assertThat(todoStore.save(todo("New", null, false)).getId()).isEqualTo(5001L);
+    }
+
+    private static Todo todo(String title, String description, boolean completed) {
+        return Todo.builder().title(title).description(description).completed(completed).build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.store;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LongIntHashMapTest {
+
+    @Test
+    void testPutGetRemove() {
+        // given
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (long key = 1; key <= 100; key++) {
+            map.put(key, (int) key * 10);
+        }
+
+        // when
+        int removed = map.remove(50L);
+
+        // then
+        assertThat(removed).isEqualTo(500);
+        assertThat(map.size()).isEqualTo(99);
+        assertThat(map.get(50L)).isEqualTo(LongIntHashMap.MISSING);
+        for (long key = 1; key <= 100; key++) {
+            if (key != 50L) {
+                assertThat(map.get(key)).isEqualTo((int) key * 10);
+            }
+        }
+    }
+
+    @Test
+    void testNonPositiveKeysAreNeverFound() {
+        // given
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(1L, 0);
+        map.put(2L, 1);
+
+        // when
+        int found = map.get(0L);
+        int removed = map.remove(0L);
+
+        // then
+        assertThat(found).isEqualTo(LongIntHashMap.MISSING);
+        assertThat(removed).isEqualTo(LongIntHashMap.MISSING);
+        assertThat(map.get(-1L)).isEqualTo(LongIntHashMap.MISSING);
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(1L)).isZero();
+        assertThat(map.get(2L)).isEqualTo(1);
+        assertThatThrownBy(() -> map.put(0L, 2)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.store;
+
+import com.example.entity.Todo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TimedTodoStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TimedTodoStore todoStore = new TimedTodoStore(new InMemoryTodoStore(), meterRegistry);
+
+    @Test
+    void testRecordsEachOperation() {
+        // given
+        Todo saved = todoStore.save(Todo.builder().title("Todo 1").description("Description 1").build());
+
+        // when
+        todoStore.findById(saved.getId());
+        todoStore.findById(99L);
+
+        // then
+        assertThat(timerCount("save", "None")).isEqualTo(1);
+        assertThat(timerCount("findById", "None")).isEqualTo(2);
+        assertThat(timerCount("findAll", "None")).isZero();
+        assertThat(meterRegistry.get(TimedTodoStore.CALLS + ".active").tag("operation", "findById").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void testRecordsFailuresByException() {
+        // given
+        Todo saved = todoStore.save(Todo.builder().title("Todo 1").description("Description 1").build());
+
+        // when
+        assertThatThrownBy(() -> todoStore.save(Todo.builder()
+                .id(saved.getId()).title("Todo 1").description("Changed").version(5L).build()))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+
+        // then
+        assertThat(timerCount("save", "OptimisticLockingFailureException")).isEqualTo(1);
+        assertThat(timerCount("save", "None")).isEqualTo(1);
+    }
+
+    private long timerCount(String operation, String exception) {
+        return meterRegistry.get(TimedTodoStore.CALLS).tags("operation", operation, "exception", exception).timer().count();
+    }
+}